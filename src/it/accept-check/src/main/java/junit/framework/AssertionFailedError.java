@@ -0,0 +1,17 @@
+package junit.framework;
+
+/**
+ * Thrown when an assertion failed.
+ */
+public class AssertionFailedError
+    extends Error
+{
+    public AssertionFailedError()
+    {
+    }
+
+    public AssertionFailedError( String message )
+    {
+        super( message );
+    }
+}
@@ -0,0 +1,8 @@
+package junit.textui;
+
+/**
+ * Has none of the fields and methods of the previous version.
+ */
+public class TestRunner
+{
+}
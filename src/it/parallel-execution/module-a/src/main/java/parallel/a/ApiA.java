@@ -0,0 +1,17 @@
+package parallel.a;
+
+import junit.framework.Assert;
+
+/**
+ * An API, which is compared against another one.
+ */
+public class ApiA
+    extends Assert
+{
+    public static final int VERSION = 1;
+
+    public String describe( int value )
+    {
+        return "module-a " + value;
+    }
+}
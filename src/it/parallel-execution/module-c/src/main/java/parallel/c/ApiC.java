@@ -0,0 +1,17 @@
+package parallel.c;
+
+import junit.framework.Assert;
+
+/**
+ * An API, which is compared against another one.
+ */
+public class ApiC
+    extends Assert
+{
+    public static final int VERSION = 1;
+
+    public String describe( int value )
+    {
+        return "module-c " + value;
+    }
+}
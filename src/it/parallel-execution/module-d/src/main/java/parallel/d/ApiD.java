@@ -0,0 +1,17 @@
+package parallel.d;
+
+import junit.framework.Assert;
+
+/**
+ * An API, which is compared against another one.
+ */
+public class ApiD
+    extends Assert
+{
+    public static final int VERSION = 1;
+
+    public String describe( int value )
+    {
+        return "module-d " + value;
+    }
+}
@@ -16,8 +16,11 @@ package org.codehaus.mojo.clirr;
  * limitations under the License.
  */
 
-import java.util.Iterator;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import net.sf.clirr.core.ApiDifference;
 import net.sf.clirr.core.Severity;
@@ -55,11 +58,28 @@ public class AbstractClirrCheckMojo
      */
     private boolean failOnInfo;
 
+    /**
+     * Whether to stop comparing at the first error, and fail with it. This only applies with
+     * <code>failOnError</code>, and when no output files are written, as they would be
+     * incomplete.
+     *
+     * @parameter expression="${clirr.failFast}" default-value="false"
+     */
+    private boolean failFast;
+
     /**
      * @component
      */
     private I18N i18n;
 
+    private LogDiffListener logListener;
+
+    @Override
+    protected boolean isTakingPrefetch()
+    {
+        return true;
+    }
+
     @Override
     protected void doExecute()
         throws MojoExecutionException, MojoFailureException
@@ -69,12 +89,12 @@ public class AbstractClirrCheckMojo
             return;
         }
         Severity minSeverity = convertSeverity( this.minSeverity );
+        warnIfNotFailingFast();
         
-        
-        ClirrDiffListener listener;
+        Map<String, ClirrDiffListener> results;
         try
         {
-            listener = executeClirr( minSeverity );
+            results = executeClirrBaselines( minSeverity );
         }
         catch ( MissingPreviousException e )
         {
@@ -84,12 +104,79 @@ public class AbstractClirrCheckMojo
             return;
         }
 
+        if ( results.size() > 1 )
+        {
+            for ( Map.Entry<String, ClirrDiffListener> result : results.entrySet() )
+            {
+                ClirrDiffListener listener = result.getValue();
+                getLog().info( "Against version " + result.getKey() + ": "
+                                   + listener.getSeverityCount( Severity.ERROR ) + " errors, "
+                                   + listener.getSeverityCount( Severity.WARNING ) + " warnings, "
+                                   + listener.getSeverityCount( Severity.INFO ) + " infos" );
+            }
+        }
+
+        checkResults( new ArrayList<ClirrDiffListener>( results.values() ), minSeverity );
+    }
+
+    @Override
+    protected File getFindingsOutputFile()
+    {
+        return reuseFindings && !isFailFast() && !isMultiBaseline() ? findingsFile : null;
+    }
+
+    @Override
+    protected boolean isFailFast()
+    {
+        return failFast && failOnError && !hasOutputFiles();
+    }
+
+    /**
+     * Warns if fail-fast is configured but does not apply.
+     */
+    protected void warnIfNotFailingFast()
+    {
+        if ( failFast && hasOutputFiles() )
+        {
+            getLog().warn( "Not failing fast, as the output files need all differences" );
+        }
+    }
+
+    /**
+     * Whether output files are written, which need all differences.
+     */
+    protected boolean hasOutputFiles()
+    {
+        return xmlOutputFile != null || textOutputFile != null || jsonOutputFile != null;
+    }
+
+    /**
+     * The differences are only logged, if <code>logResults</code> is set. Otherwise only
+     * their numbers are kept.
+     */
+    @Override
+    protected boolean isCountingOnly()
+    {
+        return !logResults;
+    }
+
+    /**
+     * Fails the build if the differences found in any of the checked projects are not
+     * allowed, and logs them otherwise.
+     *
+     * @param listeners The differences found, by checked project.
+     * @param minSeverity The minimum severity to log.
+     * @throws MojoFailureException The differences are not allowed.
+     */
+    protected void checkResults( List<ClirrDiffListener> listeners, Severity minSeverity )
+        throws MojoFailureException
+    {
         Locale locale = Locale.getDefault();
 
-        int errorCount = listener.getSeverityCount( Severity.ERROR );
+        int errorCount = getSeverityCount( listeners, Severity.ERROR );
         if ( failOnError && errorCount > 0 )
         {
-            log( listener, Severity.ERROR );
+            log( listeners, Severity.ERROR );
             String message;
             if ( errorCount > 1 )
             {
@@ -103,10 +190,10 @@ public class AbstractClirrCheckMojo
             throw new MojoFailureException( message );
         }
 
-        int warningCount = listener.getSeverityCount( Severity.WARNING );
+        int warningCount = getSeverityCount( listeners, Severity.WARNING );
         if ( failOnWarning && warningCount > 0 )
         {
-            log( listener, Severity.WARNING );
+            log( listeners, Severity.WARNING );
             String message;
             if ( warningCount > 1 )
             {
@@ -120,10 +207,10 @@ public class AbstractClirrCheckMojo
             throw new MojoFailureException( message );
         }
 
-        int infoCount = listener.getSeverityCount( Severity.INFO );
+        int infoCount = getSeverityCount( listeners, Severity.INFO );
         if ( failOnInfo && infoCount > 0 )
         {
-            log( listener, Severity.INFO );
+            log( listeners, Severity.INFO );
             String message;
             if ( infoCount > 1 )
             {
@@ -139,33 +226,60 @@ public class AbstractClirrCheckMojo
         
         if(minSeverity == Severity.INFO)
         {
-            log( listener, Severity.INFO );
-            log( listener, Severity.WARNING );
+            log( listeners, Severity.INFO );
+            log( listeners, Severity.WARNING );
         } else if(minSeverity == Severity.WARNING)
         {
-            log( listener, Severity.WARNING );
+            log( listeners, Severity.WARNING );
         }
         
-        log( listener, Severity.ERROR );
+        log( listeners, Severity.ERROR );
 
         String[] args =
             new String[]{String.valueOf( errorCount ), String.valueOf( warningCount ), String.valueOf( infoCount )};
         getLog().info( i18n.format( "clirr-report", locale, "check.clirr.success", args ) );
     }
 
-    private void log( ClirrDiffListener listener, Severity severity )
+    private static int getSeverityCount( List<ClirrDiffListener> listeners, Severity severity )
     {
-        if ( logResults )
+        int count = 0;
+        for ( ClirrDiffListener listener : listeners )
         {
-            LogDiffListener l = new LogDiffListener( getLog() );
-            for ( Iterator i = listener.getApiDifferences().iterator(); i.hasNext(); )
+            count += listener.getSeverityCount( severity );
+        }
+        return count;
+    }
+
+    private void log( List<ClirrDiffListener> listeners, Severity severity )
+    {
+        if ( !logResults )
+        {
+            return;
+        }
+        if ( logListener == null )
+        {
+            logListener = createLogDiffListener();
+        }
+        if ( !logListener.isEnabled( severity ) )
+        {
+            return;
+        }
+        int kept = 0;
+        int total = 0;
+        for ( ClirrDiffListener listener : listeners )
+        {
+            for ( ApiDifference difference : listener.getApiDifferences( severity ) )
             {
-                ApiDifference difference = (ApiDifference) i.next();
-                if ( difference.getMaximumSeverity().equals( severity ) )
-                {
-                    l.reportDiff( difference );
-                }
+                logListener.reportDiff( difference );
             }
+            kept += listener.getApiDifferences( severity ).size();
+            total += listener.getSeverityCount( severity );
+        }
+        logListener.stop();
+        if ( kept < total )
+        {
+            getLog().info( ( total - kept ) + " more differences of severity " + severity
+                + " are not listed, as only " + getRetentionLimit() + " of each message code are kept" );
         }
     }
 
@@ -24,26 +24,36 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.clirr.core.ApiDifference;
 import net.sf.clirr.core.Checker;
 import net.sf.clirr.core.CheckerException;
 import net.sf.clirr.core.ClassFilter;
+import net.sf.clirr.core.MessageTranslator;
 import net.sf.clirr.core.PlainDiffListener;
 import net.sf.clirr.core.Severity;
-import net.sf.clirr.core.XmlDiffListener;
 import net.sf.clirr.core.internal.bcel.BcelJavaType;
 import net.sf.clirr.core.internal.bcel.BcelTypeArrayBuilder;
 import net.sf.clirr.core.spi.JavaType;
 
 import org.apache.bcel.classfile.ClassParser;
 import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.util.ClassLoaderRepository;
 import org.apache.bcel.util.Repository;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
@@ -58,6 +68,7 @@ import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
 import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
 import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -92,6 +103,13 @@ public abstract class AbstractClirrMojo
      */
     protected MavenProject project;
 
+    /**
+     * @parameter expression="${session}"
+     * @required
+     * @readonly
+     */
+    protected MavenSession session;
+
     /**
      * @component
      */
@@ -143,6 +161,26 @@ public abstract class AbstractClirrMojo
      * @parameter expression="${versionsBack}" default-value="1"
      */
     protected Integer versionsBack;
+
+    /**
+     * Versions to compare the current code against, each of which is checked in the same
+     * execution. The versions are taken as given, without going back <code>versionsBack</code>.
+     * This overrides <code>comparisonVersion</code> and <code>baselineCount</code>, if present.
+     * The report compares against the first version only.
+     *
+     * @parameter
+     */
+    protected String[] comparisonVersions;
+
+    /**
+     * Number of consecutive previous versions to compare the current code against, starting
+     * <code>versionsBack</code> versions back from the comparison version. For instance, if
+     * this is 3 and <code>versionsBack</code> is 1, we check against the last three versions.
+     * The report compares against the first version only.
+     *
+     * @parameter expression="${clirr.baselineCount}" default-value="1"
+     */
+    protected int baselineCount;
     
     /**
      * When finding version to compare to, ignore any maintenence versions found,
@@ -178,7 +216,33 @@ public abstract class AbstractClirrMojo
     protected File textOutputFile;
 
     /**
-     * An XML file to render to. If omitted, no output is rendered to an XML file.
+     * A JSON Lines file to render to, with one JSON object per difference giving its class,
+     * member, message id, severities, message and a fingerprint stable across builds. The file
+     * is written while the check runs. If omitted, no JSON output is rendered.
+     *
+     * @parameter expression="${clirr.jsonOutputFile}"
+     */
+    protected File jsonOutputFile;
+
+    /**
+     * The file the check goals write their findings to, for the report to render them without
+     * comparing again. The findings are only reused if the classes, the configuration and the
+     * resolved previous version did not change.
+     *
+     * @parameter expression="${clirr.findingsFile}" default-value="${project.build.directory}/clirr-findings.dat"
+     */
+    protected File findingsFile;
+
+    /**
+     * Whether the check goals write their findings, and the report reuses them.
+     *
+     * @parameter expression="${clirr.reuseFindings}" default-value="true"
+     */
+    protected boolean reuseFindings;
+
+    /**
+     * An XML file to render to. If omitted, no output is rendered to an XML file. The file is
+     * compressed with gzip if its name ends with <code>.gz</code>.
      *
      * @parameter expression="${xmlOutputFile}"
      */
@@ -200,12 +264,51 @@ public abstract class AbstractClirrMojo
      */
     protected String[] excludes;
 
+    /**
+     * A list of methods and fields to exclude, e.g. <code>*Impl.internal*(..)</code>. A pattern
+     * is a class, a dot or <code>#</code>, and a member, which is a field or method name, or a
+     * method with its parameter types like <code>put(java.lang.String, int)</code>, where
+     * <code>(..)</code> matches any parameters. <code>*</code> matches any characters, and
+     * <code>?</code> any single character. Patterns starting with a literal package are
+     * matched fastest.
+     *
+     * @parameter
+     */
+    protected String[] memberExcludes;
+
+    /**
+     * The compiled <code>memberExcludes</code>, once compiled.
+     */
+    private MemberExclusionFilter memberExclusionFilter;
+
     /**
      * Whether to log the results to the console or not.
      *
      * @parameter expression="${logResults}" default-value="false"
      */
     protected boolean logResults;
+
+    /**
+     * When logging the results, classes with more differences of a severity than this are
+     * logged as one summary line per class and severity. 0 logs every difference.
+     *
+     * @parameter expression="${clirr.logSummaryThreshold}" default-value="0"
+     */
+    protected int logSummaryThreshold;
+
+    /**
+     * The number of differences kept for each severity and message code, to be logged and
+     * reported. Further differences are only counted, and the logs and reports say so. The output
+     * files still get all differences. 0 keeps all differences.
+     *
+     * @parameter expression="${clirr.retentionLimit}" default-value="0"
+     */
+    protected int retentionLimit;
+
+    /**
+     * Translates the messages logged.
+     */
+    private final MessageTranslator logTranslator = new MessageTranslator();
     
     /**
      * A set of message codes to ignore.
@@ -247,7 +350,115 @@ public abstract class AbstractClirrMojo
      * @parameter
      */
     protected Set<String> externallyInvokedAnnotations;
+
+    /**
+     * A file of accepted differences, which are not reported, so that only new differences fail
+     * the build. It is written by the <code>accept</code> goal, with the fingerprint of the
+     * message code, class and member of a difference on each line. Ignored if it does not exist.
+     *
+     * @parameter expression="${clirr.acceptedDifferencesFile}" default-value="${basedir}/clirr-accepted.txt"
+     */
+    protected File acceptedDifferencesFile;
+
+    /**
+     * The accepted differences read from <code>acceptedDifferencesFile</code>, once read.
+     */
+    private AcceptedDifferencesFilter acceptedDifferences;
+
+    /**
+     * Maximum size, in megabytes, of the dependency jars kept open and indexed for the
+     * remaining modules of a reactor build, together with the class files parsed from them.
+     * Modules with the same dependencies then share their class loaders. Set to 0 to disable
+     * sharing. The first module of a build using the cache sets its size for all modules.
+     *
+     * @parameter expression="${clirr.classpathCacheSize}" default-value="256"
+     */
+    protected int classpathCacheSize;
+
+    /**
+     * Whether the warning about a <code>classpathCacheSize</code> differing from the size of the
+     * shared cache was logged.
+     */
+    private boolean classpathCacheSizeIgnored;
+
+    /**
+     * Whether to collect the dependencies of the previous version by reading the
+     * dependency sections of its POMs directly, rather than by building a full project
+     * model for it. POMs using version ranges or relocations fall back to full
+     * project building.
+     *
+     * @parameter expression="${clirr.lightweightDependencyResolution}" default-value="false"
+     */
+    protected boolean lightweightDependencyResolution;
+
+    /**
+     * Whether to resolve the dependencies of the previous version only when a class
+     * lookup misses the jars resolved so far, rather than downloading them all up front.
+     * A miss only resolves the dependencies whose groupId is a prefix of the package of the
+     * class, so this suits dependencies whose packages start with their groupId.
+     * The dependency coordinates are collected from the POMs as with
+     * <code>lightweightDependencyResolution</code>.
+     *
+     * @parameter expression="${clirr.lazyDependencyResolution}" default-value="false"
+     */
+    protected boolean lazyDependencyResolution;
+
+    /**
+     * Whether to compare against the API snapshot attached to the previous version by the
+     * <code>snapshot</code> goal, when there is one. The previous jar and its dependencies
+     * are resolved only if the snapshot is missing.
+     *
+     * @parameter expression="${clirr.useApiSnapshots}" default-value="true"
+     */
+    protected boolean useApiSnapshots;
+
+    /**
+     * A directory keeping the API snapshots of the previous versions compared against, so later
+     * builds read them from there instead of resolving the previous jars again. The directory
+     * can be shared by the builds on a machine. No history is kept if this is not set.
+     *
+     * @parameter expression="${clirr.apiHistoryDirectory}"
+     */
+    protected File apiHistoryDirectory;
+
+    /**
+     * A directory caching the API snapshots of the parsed previous jars, keyed by their content
+     * and that of their dependencies. It can be shared by several machines, for example on a
+     * network file system, and is safe to use from concurrent builds. No cache is used if this
+     * is not set.
+     *
+     * @parameter expression="${clirr.apiCacheDirectory}"
+     */
+    protected File apiCacheDirectory;
+
+    /**
+     * The size in megabytes the API snapshot cache is kept below, by deleting the least
+     * recently used snapshots.
+     *
+     * @parameter expression="${clirr.apiCacheSize}" default-value="512"
+     */
+    protected int apiCacheSize;
     
+    /**
+     * Identifies the previous version as configured, before resolving changes the configuration.
+     */
+    private String baselineKey;
+
+    /**
+     * The resolved previous version, until {@link #executeClirr(Severity)} compares against it.
+     */
+    private PreviousJars baseline;
+
+    /**
+     * The classes of {@link #baseline}, if they were parsed in the background.
+     */
+    private Future<JavaType[]> baselineTypes;
+
+    /**
+     * Identifies the previous version last resolved by its version and content.
+     */
+    private String baselineDigest;
+
     public void execute()
         throws MojoExecutionException, MojoFailureException
     {
@@ -255,7 +466,19 @@ public abstract class AbstractClirrMojo
             getLog().info( "Skipping execution" );
         }
         else {
-            doExecute();
+            baselineKey = createBaselineKey();
+            try
+            {
+                doExecute();
+            }
+            finally
+            {
+                if ( isTakingPrefetch() )
+                {
+                    BaselinePrefetcher.cancel( baselineKey );
+                }
+                discardBaseline();
+            }
         }
     }
     
@@ -271,12 +494,73 @@ public abstract class AbstractClirrMojo
         throws MojoExecutionException, MojoFailureException
     {
 
+        ClirrClassFilter classFilter = new ClirrClassFilter( includes, excludes );
+
+        PreviousJars previous = getBaseline( classFilter );
+        Future<JavaType[]> prefetched = baselineTypes;
+        baseline = null;
+        baselineTypes = null;
+        JavaType[] types;
+        if ( prefetched != null )
+        {
+            if ( !prefetched.isDone() )
+            {
+                getLog().info( "Waiting for the previous version being parsed in the background" );
+            }
+            types = getResult( prefetched, "parsing the previous version" );
+        }
+        else
+        {
+            types = previous.parse();
+        }
+        JavaTypeRepository origClasses = completePreviousClasses( previous, types );
+
+        return executeClirr( project, classesDirectory, origClasses, minSeverity, xmlOutputFile, textOutputFile,
+                             jsonOutputFile );
+    }
+
+    /**
+     * Compares the classes of a project against the classes of its previous version.
+     *
+     * @param currentProject The project to check.
+     * @param currentClassesDirectory The classes of the project.
+     * @param origClasses The classes of the previous version.
+     * @param minSeverity The minimum severity written to the output files, may be null.
+     * @param xmlFile An XML file to render to, may be null.
+     * @param textFile A text file to render to, may be null.
+     * @param jsonFile A JSON Lines file to render to, may be null.
+     * @return The differences found.
+     */
+    protected ClirrDiffListener executeClirr( MavenProject currentProject, File currentClassesDirectory,
+                                              JavaTypeRepository origClasses, Severity minSeverity, File xmlFile,
+                                              File textFile, File jsonFile )
+        throws MojoExecutionException, MojoFailureException
+    {
         ClassFilter classFilter = new ClirrClassFilter( includes, excludes );
 
-        JavaTypeRepository origClasses = resolvePreviousReleaseClasses( classFilter );
+        JavaTypeRepository currentClasses =
+            resolveCurrentClasses( currentProject, currentClassesDirectory, classFilter );
 
-        JavaTypeRepository currentClasses = resolveCurrentClasses( classFilter );
-        
+        return executeClirr( origClasses, currentClasses, minSeverity, xmlFile, textFile, jsonFile );
+    }
+
+    /**
+     * Compares already parsed classes. The current classes may be compared against several
+     * previous versions at the same time.
+     *
+     * @param origClasses The classes of the previous version.
+     * @param currentClasses The classes of the project.
+     * @param minSeverity The minimum severity written to the output files, may be null.
+     * @param xmlFile An XML file to render to, may be null.
+     * @param textFile A text file to render to, may be null.
+     * @param jsonFile A JSON Lines file to render to, may be null.
+     * @return The differences found.
+     */
+    protected ClirrDiffListener executeClirr( JavaTypeRepository origClasses, JavaTypeRepository currentClasses,
+                                              Severity minSeverity, File xmlFile, File textFile, File jsonFile )
+        throws MojoExecutionException, MojoFailureException
+    {
+        prepareFilters();
         ClirrDiffListener listener = createDiffListener(origClasses,currentClasses);
 
         // Create a Clirr checker and execute
@@ -286,175 +570,1240 @@ public abstract class AbstractClirrMojo
 
         listeners.add( listener );
 
-        if ( xmlOutputFile != null )
+        if ( xmlFile != null )
+        {
+            try
+            {
+                listeners.add( new AsyncDiffListener( new StreamingXmlDiffListener( xmlFile ) ) );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Error adding '" + xmlFile + "' for output: " + e.getMessage(), e );
+            }
+        }
+
+        if ( textFile != null )
         {
             try
             {
-                listeners.add( new XmlDiffListener( xmlOutputFile.getAbsolutePath() ) );
+                listeners.add( new AsyncDiffListener( new PlainDiffListener( textFile.getAbsolutePath() ) ) );
             }
             catch ( IOException e )
             {
-                throw new MojoExecutionException( "Error adding '" + xmlOutputFile + "' for output: " + e.getMessage(),
-                                                  e );
+                throw new MojoExecutionException( "Error adding '" + textFile + "' for output: " + e.getMessage(), e );
             }
         }
 
-        if ( textOutputFile != null )
+        if ( jsonFile != null )
         {
             try
             {
-                listeners.add( new PlainDiffListener( textOutputFile.getAbsolutePath() ) );
+                listeners.add( new AsyncDiffListener( new JsonDiffListener( jsonFile ) ) );
             }
             catch ( IOException e )
             {
-                throw new MojoExecutionException( "Error adding '" + textOutputFile + "' for output: " + e.getMessage(),
-                                                  e );
+                throw new MojoExecutionException( "Error adding '" + jsonFile + "' for output: " + e.getMessage(), e );
+            }
+        }
+
+        FindingsWriter findingsWriter = null;
+        File findingsFile = getFindingsOutputFile();
+        if ( findingsFile != null )
+        {
+            Locale locale = Locale.getDefault();
+            String fingerprint = createFindingsFingerprint( locale, minSeverity, baselineDigest );
+            if ( fingerprint != null )
+            {
+                try
+                {
+                    findingsWriter = new FindingsWriter( findingsFile, fingerprint, comparisonVersion, locale );
+                    findingsWriter.setRetentionLimit( getRetentionLimit() );
+                    listener.setFilteredListener( findingsWriter );
+                }
+                catch ( IOException e )
+                {
+                    getLog().warn( "Not writing findings to '" + findingsFile + "': " + e.getMessage() );
+                }
             }
         }
 
         checker.addDiffListener( new DelegatingListener( listeners, minSeverity ) );
 
-        reportDiffs( checker, origClasses.getRawJavaTypes(), currentClasses.getRawJavaTypes() );
+        boolean compared = false;
+        try
+        {
+            reportDiffs( checker, origClasses.getRawJavaTypes(), currentClasses.getRawJavaTypes() );
+            compared = true;
+        }
+        catch ( ErrorFoundException e )
+        {
+            ApiDifference difference = e.getDifference();
+            throw new MojoFailureException( "Stopped at the first error: " + difference.getAffectedClass() + ": "
+                + difference.getReport( new MessageTranslator() ) );
+        }
+        finally
+        {
+            abortOutput( listeners );
+            if ( findingsWriter != null && !compared )
+            {
+                findingsWriter.abort();
+            }
+        }
+        if ( findingsWriter != null )
+        {
+            findingsWriter.stop();
+        }
+
+        logUsedDependencies( origClasses );
 
         return listener;
     }
 
-    protected ClirrDiffListener createDiffListener(JavaTypeRepository origClasses, JavaTypeRepository currentClasses)
+    /**
+     * Aborts the asynchronous output listeners that were not stopped, as the comparison failed,
+     * so that their writer threads end and their files are closed.
+     */
+    protected static void abortOutput( List listeners )
+    {
+        for ( Iterator iter = listeners.iterator(); iter.hasNext(); )
+        {
+            Object listener = iter.next();
+            if ( listener instanceof AsyncDiffListener )
+            {
+                ( (AsyncDiffListener) listener ).abort();
+            }
+        }
+    }
+
+    /**
+     * Compares the project against every configured previous version. The previous versions
+     * are resolved one by one, the classes of the project are parsed once and compared against
+     * the previous versions concurrently.
+     * With a single previous version, this is {@link #executeClirr(Severity)}.
+     *
+     * @param minSeverity The minimum severity written to the output files, may be null.
+     * @return The differences found, by previous version, from the most recent one.
+     */
+    protected Map<String, ClirrDiffListener> executeClirrBaselines( final Severity minSeverity )
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( !isMultiBaseline() )
+        {
+            ClirrDiffListener listener = executeClirr( minSeverity );
+            return Collections.singletonMap( comparisonVersion, listener );
+        }
+
+        final ClirrClassFilter classFilter = new ClirrClassFilter( includes, excludes );
+        List<Artifact> previousArtifacts = getComparisonArtifacts( project );
+        Map<String, ClirrDiffListener> results = new LinkedHashMap<String, ClirrDiffListener>();
+        if ( previousArtifacts.isEmpty() )
+        {
+            getLog().info( "Unable to find a previous version of the project in the repository" );
+            return results;
+        }
+
+        // the resolver is not thread-safe, only parsing and comparing happen concurrently
+        Map<String, PreviousJars> resolved = new LinkedHashMap<String, PreviousJars>();
+        for ( Artifact previousArtifact : previousArtifacts )
+        {
+            try
+            {
+                resolved.put( previousArtifact.getVersion(),
+                              resolvePreviousReleaseJars( project, Collections.singleton( previousArtifact ),
+                                                          classFilter ) );
+            }
+            catch ( MissingPreviousException e )
+            {
+                getLog().debug( e );
+                getLog().info( "Version " + previousArtifact.getVersion()
+                    + " could not be resolved, and is not compared." );
+            }
+        }
+
+        final JavaTypeRepository currentClasses = resolveCurrentClasses( project, classesDirectory, classFilter );
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.max( 1, Math.min( resolved.size(),
+                                                                 Runtime.getRuntime().availableProcessors() ) ) );
+        try
+        {
+            Map<String, Future<JavaType[]>> parsing = new LinkedHashMap<String, Future<JavaType[]>>();
+            for ( Map.Entry<String, PreviousJars> entry : resolved.entrySet() )
+            {
+                final PreviousJars previous = entry.getValue();
+                if ( !previous.isResolvingLazily() )
+                {
+                    parsing.put( entry.getKey(), executor.submit( new Callable<JavaType[]>()
+                    {
+                        public JavaType[] call()
+                        {
+                            return previous.parse();
+                        }
+                    } ) );
+                }
+            }
+
+            Map<String, Future<ClirrDiffListener>> pending = new LinkedHashMap<String, Future<ClirrDiffListener>>();
+            for ( Map.Entry<String, PreviousJars> entry : resolved.entrySet() )
+            {
+                final String version = entry.getKey();
+                Future<JavaType[]> types = parsing.get( version );
+                final JavaTypeRepository origClasses =
+                    completePreviousClasses( entry.getValue(),
+                                             types == null ? entry.getValue().parse()
+                                                             : getResult( types, "parsing version " + version ) );
+                getLog().info( "Comparing to version: " + version );
+                pending.put( version, executor.submit( new Callable<ClirrDiffListener>()
+                {
+                    public ClirrDiffListener call()
+                        throws Exception
+                    {
+                        return executeClirr( origClasses, currentClasses, minSeverity,
+                                             getBaselineFile( xmlOutputFile, version ),
+                                             getBaselineFile( textOutputFile, version ),
+                                             getBaselineFile( jsonOutputFile, version ) );
+                    }
+                } ) );
+            }
+
+            for ( Map.Entry<String, Future<ClirrDiffListener>> entry : pending.entrySet() )
+            {
+                results.put( entry.getKey(), getResult( entry.getValue(), "comparing to version "
+                    + entry.getKey() ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    protected boolean isMultiBaseline()
+    {
+        return comparisonArtifacts == null
+            && ( ( comparisonVersions != null && comparisonVersions.length > 0 ) || baselineCount > 1 );
+    }
+
+    /**
+     * Returns the previous versions of a project to compare against, from the most recent one.
+     * Versions which are not found are left out.
+     */
+    protected List<Artifact> getComparisonArtifacts( MavenProject project )
+        throws MojoFailureException, MojoExecutionException
+    {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        Set<String> versions = new HashSet<String>();
+        if ( comparisonVersions != null && comparisonVersions.length > 0 )
+        {
+            for ( int i = 0; i < comparisonVersions.length; i++ )
+            {
+                Artifact artifact = getComparisonArtifact( project, comparisonVersions[i], 0, 1 ).get( 0 );
+                if ( artifact.getVersion() != null && versions.add( artifact.getVersion() ) )
+                {
+                    artifacts.add( artifact );
+                }
+            }
+        }
+        else
+        {
+            int back = versionsBack == null ? 0 : Math.max( versionsBack.intValue(), 0 );
+            for ( Artifact artifact : getComparisonArtifact( project, comparisonVersion, back, baselineCount ) )
+            {
+                if ( artifact.getVersion() != null && versions.add( artifact.getVersion() ) )
+                {
+                    artifacts.add( artifact );
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Returns the file to render the comparison against a version to. With several previous
+     * versions, the version is added to the file name, before the extension.
+     */
+    private File getBaselineFile( File file, String version )
+    {
+        if ( file == null || !isMultiBaseline() )
+        {
+            return file;
+        }
+        String name = file.getName();
+        int extension = name.lastIndexOf( '.' );
+        if ( extension < 0 )
+        {
+            return new File( file.getParentFile(), name + "-" + version );
+        }
+        return new File( file.getParentFile(), name.substring( 0, extension ) + "-" + version
+            + name.substring( extension ) );
+    }
+
+    /**
+     * Waits for the result of a background task, unwrapping the exceptions of the task.
+     *
+     * @param task The task to wait for.
+     * @param description What the task does, for error messages.
+     */
+    protected static <T> T getResult( Future<T> task, String description )
+        throws MojoExecutionException, MojoFailureException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while " + description, e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof MojoExecutionException )
+            {
+                throw (MojoExecutionException) e.getCause();
+            }
+            if ( e.getCause() instanceof MojoFailureException )
+            {
+                throw (MojoFailureException) e.getCause();
+            }
+            throw new MojoExecutionException( "Error " + description + ": " + e.getCause(), e.getCause() );
+        }
+    }
+
+    /**
+     * Resolves the previous version, and starts parsing it in the background for
+     * {@link #executeClirr(Severity)} of a later execution with the same configuration.
+     * Previous versions whose dependencies are resolved lazily are not prefetched, as parsing
+     * them would use the resolver outside of the thread of the mojo.
+     */
+    protected void prefetchPreviousRelease()
+        throws MojoExecutionException, MojoFailureException
+    {
+        PreviousJars previous;
+        try
+        {
+            previous = resolveBaselineJars( project, comparisonVersion, new ClirrClassFilter( includes, excludes ) );
+        }
+        catch ( MissingPreviousException e )
+        {
+            getLog().debug( "Not prefetching the previous version: " + e.getMessage() );
+            return;
+        }
+        if ( previous.isResolvingLazily() )
+        {
+            getLog().debug( "Not prefetching the previous version, its dependencies are resolved lazily" );
+            return;
+        }
+        if ( BaselinePrefetcher.submit( baselineKey, session == null ? null : session.getStartTime(), previous ) )
+        {
+            getLog().info( "Parsing the previous version in the background" );
+        }
+    }
+
+    /**
+     * Resolves the previous version compared against by {@link #executeClirr(Severity)}, or
+     * takes it from the <code>prefetch</code> goal, once per comparison.
+     */
+    private PreviousJars getBaseline( ClirrClassFilter classFilter )
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( baseline == null )
+        {
+            if ( baselineKey == null )
+            {
+                // reports are generated without execute()
+                baselineKey = createBaselineKey();
+            }
+            BaselinePrefetcher.Prefetch prefetched = BaselinePrefetcher.take( baselineKey );
+            if ( prefetched != null )
+            {
+                baseline = prefetched.getJars();
+                baselineTypes = prefetched.getTypes();
+            }
+            else
+            {
+                baseline = resolveBaselineJars( project, comparisonVersion, classFilter );
+            }
+            comparisonVersion = baseline.getVersion();
+            baselineDigest = baseline.getDigest();
+        }
+        return baseline;
+    }
+
+    /**
+     * Drops the previous version resolved by {@link #resolveBaselineDigest()}, if it is not
+     * compared against, and stops parsing it in the background.
+     */
+    protected void discardBaseline()
+    {
+        if ( baselineTypes != null )
+        {
+            baselineTypes.cancel( true );
+        }
+        baseline = null;
+        baselineTypes = null;
+    }
+
+    /**
+     * Resolves the previous version compared against by {@link #executeClirr(Severity)}, without
+     * comparing yet, and identifies it by its resolved version and content.
+     *
+     * @return The identity of the previous version, or null if its content is not known.
+     */
+    protected String resolveBaselineDigest()
+        throws MojoExecutionException, MojoFailureException
+    {
+        return getBaseline( new ClirrClassFilter( includes, excludes ) ).getDigest();
+    }
+
+    /**
+     * Whether this goal takes the previous version prefetched by the <code>prefetch</code> goal.
+     * A prefetch which was not taken by the end of the execution is cancelled.
+     */
+    protected boolean isTakingPrefetch()
+    {
+        return false;
+    }
+
+    private String createBaselineKey()
+    {
+        StringBuffer key = new StringBuffer( project.getId() );
+        key.append( '|' ).append( classesDirectory );
+        key.append( '|' ).append( comparisonVersion );
+        key.append( '|' ).append( versionsBack );
+        key.append( '|' ).append( ignoreMaintenenceVersions );
+        if ( comparisonArtifacts != null )
+        {
+            for ( int i = 0; i < comparisonArtifacts.length; i++ )
+            {
+                ArtifactSpecification spec = comparisonArtifacts[i];
+                key.append( '|' ).append( spec.getGroupId() ).append( ':' ).append( spec.getArtifactId() );
+                key.append( ':' ).append( spec.getVersion() ).append( ':' ).append( spec.getClassifier() );
+                key.append( ':' ).append( spec.getType() );
+            }
+        }
+        key.append( '|' ).append( includes == null ? null : Arrays.asList( includes ) );
+        key.append( '|' ).append( excludes == null ? null : Arrays.asList( excludes ) );
+        return key.toString();
+    }
+
+    protected ClirrDiffListener createDiffListener(JavaTypeRepository origClasses, JavaTypeRepository currentClasses)
+    {
+        ApiDifferenceFilter[] filterArray = createFilters( origClasses );
+        int limit = getRetentionLimit();
+        ClirrDiffListener listener = isCountingOnly()
+                        ? new CountingDiffListener( limit > 0 ? limit : CountingDiffListener.DEFAULT_SAMPLE_SIZE,
+                                                    filterArray )
+                        : new ClirrDiffListener( filterArray );
+        if ( limit > 0 && !isCountingOnly() )
+        {
+            listener.setRetentionLimit( limit );
+        }
+        listener.setFailFast( isFailFast() );
+        return listener;
+    }
+
+    /**
+     * Creates the filters applied to the differences found.
+     */
+    protected ApiDifferenceFilter[] createFilters( JavaTypeRepository origClasses )
+    {
+        List<ApiDifferenceFilter> filters = new ArrayList<ApiDifferenceFilter>();
+        filters.add( new MessageCodeFilter( toIntegerSet(includeMessageCodes), toIntegerSet(excludeMessageCodes) ));
+        
+        if(ignoreDeprecatedMethods)
+        {
+            filters.add( new SkipDeprecatedFilter(origClasses) );
+        }
+        
+        if(adapterAnnotations != null && adapterAnnotations.size() > 0)
+        {
+            filters.add( new AdaptedInterfacesFilter(adapterAnnotations, origClasses) );
+        }
+        
+        if(externallyInvokedAnnotations != null && externallyInvokedAnnotations.size() > 0)
+        {
+            filters.add( new ExternallyInvokedFilter(externallyInvokedAnnotations, origClasses) );
+        }
+
+        MemberExclusionFilter memberExclusions = getMemberExclusionFilter();
+        if ( memberExclusions != null )
+        {
+            filters.add( memberExclusions );
+        }
+
+        AcceptedDifferencesFilter accepted = getAcceptedDifferences();
+        if ( accepted != null )
+        {
+            filters.add( accepted );
+        }
+        
+        return filters.toArray( new ApiDifferenceFilter[filters.size()] );
+    }
+
+    /**
+     * Creates a listener logging differences, which shares the message translator of this execution.
+     */
+    protected LogDiffListener createLogDiffListener()
+    {
+        return new LogDiffListener( getLog(), logTranslator, logSummaryThreshold );
+    }
+
+    /**
+     * Whether differences in <code>acceptedDifferencesFile</code> are not reported.
+     */
+    protected boolean isFilteringAcceptedDifferences()
+    {
+        return acceptedDifferencesFile != null;
+    }
+
+    /**
+     * Prepares the filters configured, once per execution, before
+     * {@link #createFilters(JavaTypeRepository)} is called.
+     */
+    protected void prepareFilters()
+        throws MojoExecutionException, MojoFailureException
+    {
+        loadAcceptedDifferences();
+        compileMemberExcludes();
+    }
+
+    /**
+     * Reads the accepted differences, if not read yet, so that {@link #createFilters(JavaTypeRepository)}
+     * excludes them.
+     */
+    private synchronized void loadAcceptedDifferences()
+        throws MojoExecutionException
+    {
+        if ( acceptedDifferences != null || !isFilteringAcceptedDifferences() || !acceptedDifferencesFile.isFile() )
+        {
+            return;
+        }
+        try
+        {
+            acceptedDifferences = AcceptedDifferencesFilter.read( acceptedDifferencesFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error reading the accepted differences in '" + acceptedDifferencesFile
+                + "': " + e.getMessage(), e );
+        }
+        getLog().info( "Not reporting " + acceptedDifferences.size() + " accepted differences in "
+            + acceptedDifferencesFile );
+    }
+
+    /**
+     * Compiles <code>memberExcludes</code>, if not compiled yet, so that
+     * {@link #createFilters(JavaTypeRepository)} excludes them.
+     */
+    private synchronized void compileMemberExcludes()
+        throws MojoFailureException
+    {
+        if ( memberExclusionFilter != null || memberExcludes == null || memberExcludes.length == 0 )
+        {
+            return;
+        }
+        try
+        {
+            memberExclusionFilter = new MemberExclusionFilter( memberExcludes );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new MojoFailureException( e.getMessage() );
+        }
+    }
+
+    private synchronized MemberExclusionFilter getMemberExclusionFilter()
+    {
+        return memberExclusionFilter;
+    }
+
+    private synchronized AcceptedDifferencesFilter getAcceptedDifferences()
+    {
+        return isFilteringAcceptedDifferences() ? acceptedDifferences : null;
+    }
+
+    /**
+     * Returns the file to write the findings to, so the report can reuse them, or null if the
+     * findings are not kept.
+     */
+    protected File getFindingsOutputFile()
+    {
+        return null;
+    }
+
+    /**
+     * Creates a fingerprint of the current classes, the previous version and everything
+     * configured, which changes the findings rendered in the language of a locale.
+     *
+     * @param baselineDigest Identifies the resolved previous version, see {@link #resolveBaselineDigest()}.
+     * @return The fingerprint, or null if the current classes could not be read or the previous
+     *   version is not known.
+     */
+    protected String createFindingsFingerprint( Locale locale, Severity minSeverity, String baselineDigest )
+    {
+        if ( baselineDigest == null )
+        {
+            getLog().debug( "Not reusing findings, the content of the previous version is not known" );
+            return null;
+        }
+        // as configured, reports are generated without execute()
+        StringBuffer configuration = new StringBuffer( baselineKey != null ? baselineKey : createBaselineKey() );
+        configuration.append( '|' ).append( comparisonVersions == null ? null : Arrays.asList( comparisonVersions ) );
+        configuration.append( '|' ).append( baselineCount );
+        configuration.append( '|' ).append( minSeverity );
+        configuration.append( '|' ).append( new TreeSet<String>( includeMessageCodes ) );
+        configuration.append( '|' ).append( new TreeSet<String>( excludeMessageCodes ) );
+        configuration.append( '|' ).append( ignoreDeprecatedMethods );
+        configuration.append( '|' ).append( adapterAnnotations == null ? null
+                        : new TreeSet<String>( adapterAnnotations ) );
+        configuration.append( '|' ).append( externallyInvokedAnnotations == null ? null
+                        : new TreeSet<String>( externallyInvokedAnnotations ) );
+        configuration.append( '|' ).append( memberExcludes == null ? null : Arrays.asList( memberExcludes ) );
+        configuration.append( '|' ).append( getRetentionLimit() );
+        configuration.append( '|' ).append( locale.getLanguage() );
+        configuration.append( '|' ).append( baselineDigest );
+        if ( isFilteringAcceptedDifferences() && acceptedDifferencesFile.isFile() )
+        {
+            configuration.append( '|' ).append( acceptedDifferencesFile.lastModified() );
+            configuration.append( ':' ).append( acceptedDifferencesFile.length() );
+        }
+        try
+        {
+            return ClirrFindings.createFingerprint( configuration.toString(), classesDirectory );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Not reusing findings: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Whether to stop comparing at the first error, which fails the build.
+     */
+    protected boolean isFailFast()
+    {
+        return false;
+    }
+
+    /**
+     * The number of differences kept for each severity and message code, 0 keeps all of them.
+     */
+    protected int getRetentionLimit()
+    {
+        return retentionLimit;
+    }
+
+    /**
+     * Whether only the numbers of differences are used, so that the differences need not be
+     * kept. The file outputs do not depend on this, they are written as differences are found.
+     */
+    protected boolean isCountingOnly()
+    {
+        return false;
+    }
+
+    protected Set<Integer> toIntegerSet( Set<String> set )
+    {
+        Set<Integer> ints = new HashSet<Integer>();
+        for(String str : set)
+        {
+            ints.add( Integer.valueOf( str ) );
+        }
+        return ints;
+    }
+
+    private JavaTypeRepository resolveCurrentClasses( MavenProject project, File classesDirectory,
+                                                      ClassFilter classFilter )
+        throws MojoExecutionException
+    {
+        try
+        {
+            ClassLoader currentDepCL = createClassLoader( project.getArtifacts(), null );
+            Repository currentDepRepository = getClasspathCache().getRepository( currentDepCL );
+            return new JavaTypeRepository( createClassSet( classesDirectory, currentDepCL, currentDepRepository,
+                                                           classFilter ), currentDepCL );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Error creating classloader for current classes", e );
+        }
+    }
+
+    /**
+     * Resolves and parses the previous version of a project.
+     *
+     * @param project The project to find the previous version of.
+     * @param comparisonVersion The version to go back from, unless <code>comparisonArtifacts</code> is set.
+     * @param classFilter Selects the classes to compare.
+     * @return The classes and the version compared against.
+     */
+    protected BaselinePrefetcher.Baseline resolveBaseline( MavenProject project, String comparisonVersion,
+                                                           ClirrClassFilter classFilter )
+        throws MojoFailureException, MojoExecutionException
+    {
+        PreviousJars previous = resolveBaselineJars( project, comparisonVersion, classFilter );
+        return new BaselinePrefetcher.Baseline( completePreviousClasses( previous, previous.parse() ),
+                                                previous.getVersion() );
+    }
+
+    /**
+     * Resolves the previous version of a project, without parsing it yet.
+     *
+     * @see #resolveBaseline(MavenProject, String, ClirrClassFilter)
+     */
+    private PreviousJars resolveBaselineJars( MavenProject project, String comparisonVersion,
+                                              ClirrClassFilter classFilter )
+        throws MojoFailureException, MojoExecutionException
+    {
+        final Set previousArtifacts;
+        if ( comparisonArtifacts == null )
+        {
+            Artifact previousArtifact = getComparisonArtifact( project, comparisonVersion );
+            if ( previousArtifact.getVersion() == null )
+            {
+                throw new MissingPreviousException( "No previous version of " + project.getArtifactId()
+                    + " was found", null );
+            }
+            comparisonVersion = previousArtifact.getVersion();
+            getLog().info( "Comparing to version: " + comparisonVersion );
+            previousArtifacts = Collections.singleton( previousArtifact );
+        }
+        else
+        {
+            previousArtifacts = resolveArtifacts( comparisonArtifacts );
+            for ( Iterator iter = previousArtifacts.iterator();  iter.hasNext();  )
+            {
+                Artifact artifact = (Artifact) iter.next();
+                getLog().debug( "Comparing to "
+                               + artifact.getGroupId() + ":"
+                               + artifact.getArtifactId() + ":"
+                               + artifact.getVersion() + ":"
+                               + artifact.getClassifier() + ":"
+                               + artifact.getType() );
+            }
+        }
+
+        PreviousJars previous = resolvePreviousReleaseJars( project, previousArtifacts, classFilter );
+        previous.setVersion( comparisonVersion );
+        return previous;
+    }
+
+    private PreviousJars resolvePreviousReleaseJars( MavenProject project, Set previousArtifacts,
+                                                     ClirrClassFilter classFilter )
+        throws MojoExecutionException
+    {
+        try
+        {
+            PreviousJars previous = resolveArtifactJars( project, previousArtifacts, classFilter, false );
+            previous.setDigest( createBaselineDigest( previousArtifacts ) );
+            return previous;
+        }
+        catch ( ArtifactNotFoundException e )
+        {
+            getLog().warn( "Impossible to find previous version" );
+            return new PreviousJars( new JavaTypeRepository(new JavaType[]{}, getClass().getClassLoader()) );
+            //throw new MojoExecutionException( "Error finding previous version: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Resolves the classes of some artifacts, from the API history, an attached API snapshot,
+     * the API snapshot cache or the artifacts themselves, in that order.
+     *
+     * @param artifacts The artifacts to resolve.
+     * @param loadArtifactClasses Whether the class loader of the result also loads the classes of the
+     *            artifacts, rather than only their dependencies.
+     * @throws ArtifactNotFoundException if one of the artifacts does not exist.
+     */
+    protected JavaTypeRepository resolveArtifactClasses( MavenProject project, Set artifacts,
+                                                         ClirrClassFilter classFilter, boolean loadArtifactClasses )
+        throws MojoExecutionException, ArtifactNotFoundException
+    {
+        PreviousJars previous = resolveArtifactJars( project, artifacts, classFilter, loadArtifactClasses );
+        return completePreviousClasses( previous, previous.parse() );
+    }
+
+    /**
+     * Resolves the classes of some artifacts like
+     * {@link #resolveArtifactClasses(MavenProject, Set, ClirrClassFilter, boolean)}, but leaves
+     * parsing the resolved jars to the caller.
+     */
+    private PreviousJars resolveArtifactJars( MavenProject project, Set artifacts, ClirrClassFilter classFilter,
+                                              boolean loadArtifactClasses )
+        throws MojoExecutionException, ArtifactNotFoundException
+    {
+        Artifact release = getReleaseArtifact( artifacts );
+        ApiHistoryStore history = release != null && !release.isSnapshot() ? getApiHistoryStore() : null;
+        if ( history != null )
+        {
+            JavaTypeRepository stored = readApiHistory( history, release, classFilter );
+            if ( stored != null )
+            {
+                return new PreviousJars( stored );
+            }
+        }
+
+        JavaTypeRepository snapshot = resolvePreviousReleaseSnapshot( project, release, history, classFilter );
+        if ( snapshot != null )
+        {
+            return new PreviousJars( snapshot );
+        }
+
+        try
+        {
+            for ( Iterator iter = artifacts.iterator();  iter.hasNext();  )
+            {
+                Artifact artifact = (Artifact) iter.next();
+                resolver.resolve( artifact, project.getRemoteArtifactRepositories(), localRepository );
+            }
+
+            final Set files = new HashSet();
+            for ( Iterator iter = artifacts.iterator();  iter.hasNext();  )
+            {
+                Artifact artifact = (Artifact) iter.next();
+                // Clirr expects JAR files, so let's not pass other artifact files.
+                // MCLIRR-39 Support for Maven Plugins, which are also JARs
+                if ( "jar".equals( artifact.getType() ) || "maven-plugin".equals( artifact.getType() ) ) {
+                    files.add(new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) ));
+                }
+            }
+            File[] jars = (File[]) files.toArray( new File[files.size()] );
+
+            final ClassLoader origDepCL;
+            final ClassLoader prevArtifactClassLoader;
+            final List dependencies;
+            final List lazyDependencies = lazyDependencyResolution ? createPomDependencyWalker( project )
+                .collectDependencies( artifacts ) : null;
+            if ( lazyDependencies != null )
+            {
+                lazyDependencies.removeAll( artifacts );
+                dependencies = lazyDependencies;
+                origDepCL = new LazyDependencyClassLoader( lazyDependencies, resolver, localRepository,
+                                                           project.getRemoteArtifactRepositories(), getLog() );
+                prevArtifactClassLoader = origDepCL;
+            }
+            else
+            {
+                dependencies = getTransitiveDependencies( project, artifacts );
+                origDepCL = createClassLoader( dependencies, artifacts );
+                prevArtifactClassLoader = createClassLoader( dependencies, null );
+            }
+
+            // a cached snapshot of the jars saves parsing them, and, with lazy dependency resolution,
+            // resolving their dependencies
+            ApiSnapshotCache cache = jars.length > 0 ? getApiSnapshotCache() : null;
+            String cacheKey = cache != null ? createApiCacheKey( jars, dependencies, artifacts ) : null;
+            if ( cacheKey != null )
+            {
+                JavaTypeRepository cached = readApiCache( cache, cacheKey, classFilter );
+                if ( cached != null )
+                {
+                    if ( history != null )
+                    {
+                        storeApiHistory( history, release, cache.getFile( cacheKey ) );
+                    }
+                    return new PreviousJars( cached );
+                }
+            }
+            ClassLoader typeClassLoader =
+                loadArtifactClasses ? createJarClassLoader( jars, prevArtifactClassLoader ) : prevArtifactClassLoader;
+            return new PreviousJars( classFilter, release, history, cache, cacheKey, jars, origDepCL,
+                                     prevArtifactClassLoader, typeClassLoader );
+        }
+        catch ( ProjectBuildingException e )
+        {
+            throw new MojoExecutionException( "Failed to build project for previous artifact: " + e.getMessage(), e );
+        }
+        catch ( InvalidDependencyVersionException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            throw new MissingPreviousException( "Error resolving previous version: " + e.getMessage(), e );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Error creating classloader for previous version's classes", e );
+        }
+    }
+
+    /**
+     * Identifies some previous artifacts by their ids and the digests of their files. Released
+     * artifacts which were not resolved, as their classes were stored, are identified by their ids.
+     *
+     * @return The identity, or null if a snapshot artifact was not resolved.
+     */
+    private String createBaselineDigest( Set previousArtifacts )
+    {
+        List<String> ids = new ArrayList<String>();
+        try
+        {
+            for ( Iterator iter = previousArtifacts.iterator(); iter.hasNext(); )
+            {
+                Artifact artifact = (Artifact) iter.next();
+                if ( artifact.getFile() != null && artifact.getFile().isFile() )
+                {
+                    ids.add( artifact.getId() + "=" + ApiSnapshotCache.digest( artifact.getFile() ) );
+                }
+                else if ( !artifact.isSnapshot() )
+                {
+                    ids.add( artifact.getId() );
+                }
+                else
+                {
+                    return null;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Not identifying the previous version: " + e.getMessage() );
+            return null;
+        }
+        Collections.sort( ids );
+        return ids.toString();
+    }
+
+    /**
+     * Adds the parsed classes of some jars to the API snapshot cache and the API history, if
+     * they are used, and returns the selected classes.
+     *
+     * @param types The result of {@link PreviousJars#parse()}.
+     */
+    private JavaTypeRepository completePreviousClasses( PreviousJars previous, JavaType[] types )
+        throws MojoExecutionException
+    {
+        if ( previous.stored != null )
+        {
+            return previous.stored;
+        }
+        try
+        {
+            if ( previous.isStoring() )
+            {
+                JavaTypeRepository stored = null;
+                if ( previous.cacheKey != null )
+                {
+                    stored = storeApiCache( previous.cache, previous.cacheKey, types, previous.jars,
+                                            previous.prevArtifactClassLoader, previous.classFilter );
+                }
+                if ( previous.history != null )
+                {
+                    JavaTypeRepository storedHistory =
+                        storeApiHistory( previous.history, previous.release, types, previous.jars,
+                                         previous.prevArtifactClassLoader, previous.classFilter );
+                    stored = stored != null ? stored : storedHistory;
+                }
+                return stored != null ? stored : new JavaTypeRepository( selectTypes( types, previous.classFilter ),
+                                                                         previous.typeClassLoader );
+            }
+            return new JavaTypeRepository( types, previous.typeClassLoader );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Error creating classloader for previous version's classes", e );
+        }
+    }
+
+    /**
+     * Returns the previous artifact, if a single released artifact is compared against.
+     * Only these have API snapshots.
+     */
+    protected static Artifact getReleaseArtifact( Set previousArtifacts )
+    {
+        if ( previousArtifacts.size() != 1 )
+        {
+            return null;
+        }
+        Artifact artifact = (Artifact) previousArtifacts.iterator().next();
+        if ( artifact.getVersion() == null || artifact.getClassifier() != null )
+        {
+            return null;
+        }
+        return artifact;
+    }
+
+    /**
+     * Returns the API history configured for the build, or null if there is none.
+     */
+    protected ApiHistoryStore getApiHistoryStore()
+    {
+        return apiHistoryDirectory != null ? new ApiHistoryStore( apiHistoryDirectory ) : null;
+    }
+
+    /**
+     * Reads the classes of a previous version from the API history.
+     *
+     * @return The classes of the previous version, or null if the history does not have it.
+     */
+    protected JavaTypeRepository readApiHistory( ApiHistoryStore history, Artifact artifact,
+                                                 ClirrClassFilter classFilter )
     {
-        List<ApiDifferenceFilter> filters = new ArrayList<ApiDifferenceFilter>();
-        filters.add( new MessageCodeFilter( toIntegerSet(includeMessageCodes), toIntegerSet(excludeMessageCodes) ));
-        
-        if(ignoreDeprecatedMethods)
-        {
-            filters.add( new SkipDeprecatedFilter(origClasses) );
-        }
-        
-        if(adapterAnnotations != null && adapterAnnotations.size() > 0)
+        try
         {
-            filters.add( new AdaptedInterfacesFilter(adapterAnnotations, origClasses) );
+            JavaTypeRepository classes =
+                history.read( artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), classFilter );
+            if ( classes != null )
+            {
+                getLog().info( "Comparing to the API history of " + artifact.getId() );
+            }
+            return classes;
         }
-        
-        if(externallyInvokedAnnotations != null && externallyInvokedAnnotations.size() > 0)
+        catch ( IOException e )
         {
-            filters.add( new ExternallyInvokedFilter(externallyInvokedAnnotations, origClasses) );
+            getLog().warn( "Ignoring the API history of " + artifact.getId() + ": " + e.getMessage() );
+            return null;
         }
-        
-        ClirrDiffListener listener = new ClirrDiffListener(filters.toArray(new ApiDifferenceFilter[filters.size()]));
-        return listener;
     }
 
-    protected Set<Integer> toIntegerSet( Set<String> set )
+    /**
+     * Adds the classes of a previous version to the API history, and reads them back.
+     *
+     * @param types All classes of the previous version.
+     * @param jars The files of the previous version.
+     * @param dependencyClassLoader Loads the dependencies of the previous version.
+     * @return The selected classes of the previous version, or null if adding them failed.
+     */
+    protected JavaTypeRepository storeApiHistory( ApiHistoryStore history, Artifact artifact, JavaType[] types,
+                                                  File[] jars, ClassLoader dependencyClassLoader,
+                                                  ClirrClassFilter classFilter )
+        throws MalformedURLException
     {
-        Set<Integer> ints = new HashSet<Integer>();
-        for(String str : set)
+        try
         {
-            ints.add( Integer.valueOf( str ) );
+            history.store( artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), types,
+                           createAnnotationRepository( types, jars, dependencyClassLoader ) );
+            getLog().debug( "Added " + artifact.getId() + " to the API history" );
         }
-        return ints;
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to add " + artifact.getId() + " to the API history: " + e.getMessage() );
+            return null;
+        }
+        return readApiHistory( history, artifact, classFilter );
     }
 
-    private JavaTypeRepository resolveCurrentClasses( ClassFilter classFilter )
-        throws MojoExecutionException
+    /**
+     * Copies an API snapshot of a previous version to the API history.
+     */
+    protected void storeApiHistory( ApiHistoryStore history, Artifact artifact, File snapshot )
     {
         try
         {
-            ClassLoader currentDepCL = createClassLoader( project.getArtifacts(), null );
-            return new JavaTypeRepository(createClassSet( classesDirectory, currentDepCL, classFilter ), currentDepCL);
+            history.store( artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), snapshot );
         }
-        catch ( MalformedURLException e )
+        catch ( IOException e )
         {
-            throw new MojoExecutionException( "Error creating classloader for current classes", e );
+            getLog().warn( "Failed to add " + artifact.getId() + " to the API history: " + e.getMessage() );
         }
     }
 
-    private JavaTypeRepository resolvePreviousReleaseClasses( ClassFilter classFilter )
-        throws MojoFailureException, MojoExecutionException
+    /**
+     * Returns the shared API snapshot cache configured for the build, or null if there is none.
+     */
+    protected ApiSnapshotCache getApiSnapshotCache()
     {
-        final Set previousArtifacts;
-        final Artifact firstPreviousArtifact;
-        if ( comparisonArtifacts == null )
-        {
-            firstPreviousArtifact = getComparisonArtifact();
-            comparisonVersion = firstPreviousArtifact.getVersion();
-            getLog().info( "Comparing to version: " + comparisonVersion );
-            previousArtifacts = Collections.singleton( firstPreviousArtifact );
-        }
-        else
+        return apiCacheDirectory != null ? new ApiSnapshotCache( apiCacheDirectory, apiCacheSize * 1024L * 1024L )
+                        : null;
+    }
+
+    /**
+     * Creates the key of some jars in the API snapshot cache. The snapshot holds supertypes
+     * resolved from the dependencies of the jars, so the key covers the dependencies as well:
+     * a resolved dependency by the digest of its jar, and an unresolved released dependency by
+     * its coordinates.
+     *
+     * @param dependencies The dependencies of the jars, which may include the artifacts of the jars.
+     * @param artifacts The artifacts of the jars.
+     * @return The key, or null if the jars could not be read, or a dependency is an unresolved snapshot.
+     */
+    protected String createApiCacheKey( File[] jars, Collection dependencies, Set artifacts )
+    {
+        try
         {
-            previousArtifacts = resolveArtifacts( comparisonArtifacts );
-            Artifact a = null;
-            for ( Iterator iter = previousArtifacts.iterator();  iter.hasNext();  )
+            List<String> dependencyKeys = new ArrayList<String>( dependencies.size() );
+            for ( Iterator iter = dependencies.iterator(); iter.hasNext(); )
             {
-                Artifact artifact = (Artifact) iter.next();
-                if ( a == null )
+                Artifact dependency = (Artifact) iter.next();
+                if ( artifacts.contains( dependency ) )
                 {
-                    a = artifact;
+                    continue;
+                }
+                if ( dependency.getFile() != null && dependency.getFile().isFile() )
+                {
+                    dependencyKeys.add( ApiSnapshotCache.digest( dependency.getFile() ) );
+                }
+                else if ( !dependency.isSnapshot() )
+                {
+                    dependencyKeys.add( dependency.getId() );
+                }
+                else
+                {
+                    getLog().debug( "Not using the API snapshot cache, as " + dependency.getId()
+                        + " is not resolved" );
+                    return null;
                 }
-                getLog().debug( "Comparing to "
-                               + artifact.getGroupId() + ":"
-                               + artifact.getArtifactId() + ":"
-                               + artifact.getVersion() + ":"
-                               + artifact.getClassifier() + ":"
-                               + artifact.getType() );
             }
-            firstPreviousArtifact = a;
+            return ApiSnapshotCache.createKey( jars, dependencyKeys );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Not using the API snapshot cache: " + e.getMessage() );
+            return null;
         }
+    }
 
+    /**
+     * Reads the classes of some jars from the API snapshot cache.
+     *
+     * @return The classes, or null if the cache does not have them.
+     */
+    protected JavaTypeRepository readApiCache( ApiSnapshotCache cache, String key, ClirrClassFilter classFilter )
+    {
         try
         {
-            for ( Iterator iter = previousArtifacts.iterator();  iter.hasNext();  )
+            JavaTypeRepository classes = cache.read( key, classFilter );
+            if ( classes != null )
             {
-                Artifact artifact = (Artifact) iter.next();
-                resolver.resolve( artifact, project.getRemoteArtifactRepositories(), localRepository );
+                getLog().info( "Comparing to the cached API snapshot " + key );
             }
+            return classes;
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Ignoring the cached API snapshot " + key + ": " + e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Adds the classes of some jars to the API snapshot cache, and reads them back.
+     *
+     * @param types All classes of the jars.
+     * @param dependencyClassLoader Loads the dependencies of the jars.
+     * @return The selected classes of the jars, or null if adding them failed.
+     */
+    protected JavaTypeRepository storeApiCache( ApiSnapshotCache cache, String key, JavaType[] types, File[] jars,
+                                                ClassLoader dependencyClassLoader, ClirrClassFilter classFilter )
+        throws MalformedURLException
+    {
+        try
+        {
+            cache.store( key, types, createAnnotationRepository( types, jars, dependencyClassLoader ) );
+            getLog().debug( "Added API snapshot " + key + " to the cache" );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to add API snapshot " + key + " to the cache: " + e.getMessage() );
+            return null;
+        }
+        return readApiCache( cache, key, classFilter );
+    }
 
-            final List dependencies = getTransitiveDependencies( previousArtifacts );
+    private static JavaTypeRepository createAnnotationRepository( JavaType[] types, File[] jars,
+                                                                  ClassLoader dependencyClassLoader )
+        throws MalformedURLException
+    {
+        return new JavaTypeRepository( types, createJarClassLoader( jars, dependencyClassLoader ) );
+    }
 
-            ClassLoader origDepCL = createClassLoader( dependencies, previousArtifacts );
-            final Set files = new HashSet();
-            for ( Iterator iter = previousArtifacts.iterator();  iter.hasNext();  )
+    private static ClassLoader createJarClassLoader( File[] jars, ClassLoader parent )
+        throws MalformedURLException
+    {
+        URL[] urls = new URL[jars.length];
+        for ( int i = 0; i < jars.length; i++ )
+        {
+            urls[i] = jars[i].toURI().toURL();
+        }
+        return new URLClassLoader( urls, parent );
+    }
+
+    private static JavaType[] selectTypes( JavaType[] types, ClirrClassFilter classFilter )
+    {
+        List<JavaType> selected = new ArrayList<JavaType>();
+        for ( int i = 0; i < types.length; i++ )
+        {
+            if ( classFilter.isSelected( types[i].getName() ) )
             {
-                Artifact artifact = (Artifact) iter.next();
-                // Clirr expects JAR files, so let's not pass other artifact files.
-                // MCLIRR-39 Support for Maven Plugins, which are also JARs
-                if ( "jar".equals( artifact.getType() ) || "maven-plugin".equals( artifact.getType() ) ) {
-                    files.add(new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) ));
-                }
+                selected.add( types[i] );
             }
-            
-            ClassLoader prevArtifactClassLoader = createClassLoader( dependencies, null );
-            
-            return new JavaTypeRepository(BcelTypeArrayBuilder.createClassSet( (File[]) files.toArray( new File[files.size()] ),
-                                                        origDepCL, classFilter ), prevArtifactClassLoader);
         }
-        catch ( ProjectBuildingException e )
+        return selected.toArray( new JavaType[selected.size()] );
+    }
+
+    /**
+     * Reads the API snapshot of the previous version, if it was attached to the previous
+     * release. A valid snapshot is added to the API history, if there is one.
+     *
+     * @param artifact The previous release, may be null.
+     * @param history The API history, may be null.
+     * @return The classes of the previous version, or null if there is no snapshot.
+     */
+    private JavaTypeRepository resolvePreviousReleaseSnapshot( MavenProject project, Artifact artifact,
+                                                               ApiHistoryStore history,
+                                                               ClirrClassFilter classFilter )
+        throws MojoExecutionException
+    {
+        if ( !useApiSnapshots || artifact == null )
         {
-            throw new MojoExecutionException( "Failed to build project for previous artifact: " + e.getMessage(), e );
+            return null;
         }
-        catch ( InvalidDependencyVersionException e )
+
+        Artifact snapshotArtifact =
+            factory.createArtifactWithClassifier( artifact.getGroupId(), artifact.getArtifactId(),
+                                                  artifact.getVersion(), ApiSnapshot.TYPE, ApiSnapshot.CLASSIFIER );
+        try
         {
-            throw new MojoExecutionException( e.getMessage(), e );
+            resolver.resolve( snapshotArtifact, project.getRemoteArtifactRepositories(), localRepository );
         }
         catch ( ArtifactResolutionException e )
         {
-            throw new MissingPreviousException( "Error resolving previous version: " + e.getMessage(), e );
+            getLog().debug( "No API snapshot of " + artifact.getId() + ": " + e.getMessage() );
+            return null;
         }
         catch ( ArtifactNotFoundException e )
         {
-            getLog().warn( "Impossible to find previous version" );
-            return new JavaTypeRepository(new JavaType[]{}, getClass().getClassLoader());
-            //throw new MojoExecutionException( "Error finding previous version: " + e.getMessage(), e );
+            getLog().debug( "No API snapshot of " + artifact.getId() + ": " + e.getMessage() );
+            return null;
         }
-        catch ( MalformedURLException e )
+
+        JavaTypeRepository classes;
+        try
         {
-            throw new MojoExecutionException( "Error creating classloader for previous version's classes", e );
+            classes = ApiSnapshot.read( snapshotArtifact.getFile(), classFilter );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Ignoring the API snapshot of " + artifact.getId() + ": " + e.getMessage() );
+            return null;
+        }
+        getLog().info( "Comparing to the API snapshot of " + artifact.getId() );
+
+        // only a snapshot that could be read is kept in the history
+        if ( history != null )
+        {
+            storeApiHistory( history, artifact, snapshotArtifact.getFile() );
         }
+        return classes;
     }
 
-    protected List getTransitiveDependencies( final Set previousArtifacts )
+    protected List getTransitiveDependencies( MavenProject project, final Set previousArtifacts )
         throws ProjectBuildingException, InvalidDependencyVersionException, ArtifactResolutionException,
         ArtifactNotFoundException
     {
+        if ( lightweightDependencyResolution )
+        {
+            final List dependencies = createPomDependencyWalker( project ).resolveDependencies( previousArtifacts );
+            if ( dependencies != null )
+            {
+                return dependencies;
+            }
+        }
+
         final List dependencies = new ArrayList();
         for ( Iterator iter = previousArtifacts.iterator();  iter.hasNext();  )
         {
@@ -480,6 +1829,27 @@ public abstract class AbstractClirrMojo
         return dependencies;
     }
 
+    private PomDependencyWalker createPomDependencyWalker( MavenProject project )
+    {
+        return new PomDependencyWalker( session, factory, resolver, localRepository,
+                                        project.getRemoteArtifactRepositories(), getLog() );
+    }
+
+    private void logUsedDependencies( JavaTypeRepository origClasses )
+    {
+        if ( origClasses.getClassLoader() instanceof LazyDependencyClassLoader )
+        {
+            LazyDependencyClassLoader lazyLoader = (LazyDependencyClassLoader) origClasses.getClassLoader();
+            List<Artifact> used = lazyLoader.getUsedArtifacts();
+            getLog().info( "Used " + used.size() + " dependencies of the previous version, "
+                               + lazyLoader.getPendingCount() + " were never resolved." );
+            for ( Artifact artifact : used )
+            {
+                getLog().debug( "Used " + artifact );
+            }
+        }
+    }
+
     private Artifact resolveArtifact( ArtifactSpecification artifactSpec )
         throws MojoFailureException, MojoExecutionException
     {
@@ -523,21 +1893,46 @@ public abstract class AbstractClirrMojo
         return artifactSet;
     }
 
-    private Artifact getComparisonArtifact()
+    protected Artifact getComparisonArtifact( MavenProject project, String comparisonVersion )
+        throws MojoFailureException, MojoExecutionException
+    {
+        int back = versionsBack == null ? 0 : Math.max( versionsBack.intValue(), 0 );
+        return getComparisonArtifact( project, comparisonVersion, back, 1 ).get( 0 );
+    }
+
+    /**
+     * Finds consecutive previous versions of a project.
+     *
+     * @param project The project to find previous versions of.
+     * @param comparisonVersion The version, or version range, to go back from.
+     * @param versionsBack The number of versions to go back before the first version returned.
+     * @param count The number of versions to return.
+     * @return The versions found, from the most recent one. If there are not enough previous
+     *   versions, the last one has no version.
+     */
+    private List<Artifact> getComparisonArtifact( MavenProject project, String comparisonVersion, int versionsBack,
+                                                  int count )
         throws MojoFailureException, MojoExecutionException
     {
         // Find the previous version JAR and resolve it, and it's dependencies
-        VersionRange range;
         try
         {
-            if(versionsBack != null && versionsBack > 0)
+            List<Artifact> artifacts = new ArrayList<Artifact>();
+            String version = comparisonVersion;
+            for ( int i = 0; artifacts.size() < count; i++ )
             {
-                while(--versionsBack >= 0)
+                Artifact artifact = getComparisonArtifact(project, VersionRange.createFromVersionSpec( version ), ignoreMaintenenceVersions);
+                if ( i >= versionsBack || artifact.getVersion() == null )
                 {
-                    comparisonVersion = "(," + getComparisonArtifact(VersionRange.createFromVersionSpec( comparisonVersion ), ignoreMaintenenceVersions).getVersion() + ")";
+                    artifacts.add( artifact );
                 }
+                if ( artifact.getVersion() == null )
+                {
+                    break;
+                }
+                version = "(," + artifact.getVersion() + ")";
             }
-            return getComparisonArtifact(VersionRange.createFromVersionSpec( comparisonVersion ), ignoreMaintenenceVersions);
+            return artifacts;
         }
         catch ( InvalidVersionSpecificationException e )
         {
@@ -545,15 +1940,15 @@ public abstract class AbstractClirrMojo
         }
     }
         
-    private Artifact getComparisonArtifact(VersionRange range, boolean ignoreMaintenenceVersions)
+    private Artifact getComparisonArtifact(MavenProject project, VersionRange range, boolean ignoreMaintenenceVersions)
             throws MojoFailureException, MojoExecutionException
     {
     
-        Artifact previousArtifact = getArtifact( range );
+        Artifact previousArtifact = getArtifact( project, range );
         
         if(ignoreMaintenenceVersions && isMaintenenceVersion(previousArtifact.getVersion()))
         {
-            return getArtifact(VersionRange.createFromVersion( 
+            return getArtifact(project, VersionRange.createFromVersion( 
                     getMinorVersionFromMaintenenceVersion(previousArtifact.getVersion()) ));
         }
         
@@ -579,7 +1974,7 @@ public abstract class AbstractClirrMojo
         return version != null && version.split( "\\." ).length > 2;
     }
 
-    private Artifact getArtifact(VersionRange range)
+    private Artifact getArtifact(MavenProject project, VersionRange range)
         throws MojoFailureException, MojoExecutionException
     {
 
@@ -621,6 +2016,52 @@ public abstract class AbstractClirrMojo
         return previousArtifact;
     }
 
+    /**
+     * Returns the released versions of an artifact within a version range.
+     *
+     * @param artifactSpec The artifact, of which the version is ignored.
+     * @param range The versions to return.
+     * @return The versions, in ascending order.
+     */
+    protected List<String> getAvailableVersions( ArtifactSpecification artifactSpec, VersionRange range )
+        throws MojoExecutionException
+    {
+        String type = artifactSpec.getType() == null ? "jar" : artifactSpec.getType();
+        Artifact artifact =
+            factory.createDependencyArtifact( artifactSpec.getGroupId(), artifactSpec.getArtifactId(), range, type,
+                                              artifactSpec.getClassifier(), Artifact.SCOPE_COMPILE );
+        List availableVersions;
+        try
+        {
+            availableVersions = metadataSource.retrieveAvailableVersions( artifact, localRepository,
+                                                                          project.getRemoteArtifactRepositories() );
+        }
+        catch ( ArtifactMetadataRetrievalException e )
+        {
+            throw new MojoExecutionException( "Error determining versions of " + artifactSpec.getGroupId() + ":"
+                + artifactSpec.getArtifactId() + ": " + e.getMessage(), e );
+        }
+        filterSnapshots( availableVersions );
+
+        List selected = new ArrayList();
+        for ( Iterator i = availableVersions.iterator(); i.hasNext(); )
+        {
+            ArtifactVersion version = (ArtifactVersion) i.next();
+            if ( range.containsVersion( version ) )
+            {
+                selected.add( version );
+            }
+        }
+        Collections.sort( selected );
+
+        List<String> versions = new ArrayList<String>( selected.size() );
+        for ( Iterator i = selected.iterator(); i.hasNext(); )
+        {
+            versions.add( i.next().toString() );
+        }
+        return versions;
+    }
+
     private void filterSnapshots( List versions )
     {
         for ( Iterator versionIterator = versions.iterator(); versionIterator.hasNext(); )
@@ -635,10 +2076,28 @@ public abstract class AbstractClirrMojo
 
     public static JavaType[] createClassSet( File classes, ClassLoader thirdPartyClasses, ClassFilter classFilter )
         throws MalformedURLException
+    {
+        return createClassSet( classes, thirdPartyClasses, null, classFilter );
+    }
+
+    /**
+     * Parses the classes in <code>classes</code>, looking up any third-party class in
+     * <code>thirdPartyRepository</code> first, so that its parsed form may be shared.
+     *
+     * @param classes The directory of class files to parse.
+     * @param thirdPartyClasses The dependencies of these classes, may be null.
+     * @param thirdPartyRepository A repository over <code>thirdPartyClasses</code>, may be null.
+     * @param classFilter Selects the classes to return.
+     * @return The selected classes.
+     * @throws MalformedURLException Failed to convert <code>classes</code> to an URL.
+     */
+    public static JavaType[] createClassSet( File classes, ClassLoader thirdPartyClasses,
+                                             Repository thirdPartyRepository, ClassFilter classFilter )
+        throws MalformedURLException
     {
         ClassLoader classLoader = new URLClassLoader( new URL[]{classes.toURI().toURL()}, thirdPartyClasses );
 
-        Repository repository = new ClassLoaderRepository( classLoader );
+        Repository repository = new CachingClassRepository( classLoader, thirdPartyRepository );
 
         List selected = new ArrayList();
 
@@ -694,6 +2153,8 @@ public abstract class AbstractClirrMojo
      * that we let BCEL inspect the artifacts in the latter set, using a
      * {@link ClassLoader}, which contains the dependencies. However, the
      * {@link ClassLoader} must not contain the jar files, which are being inspected.
+     * The {@link ClassLoader} is taken from the {@link ClasspathCache} of the session,
+     * if an earlier module used the same jar files.
      * @param artifacts The artifacts, from which to build a {@link ClassLoader}.
      * @param previousArtifacts The artifacts being inspected, or null, if te
      *   returned {@link ClassLoader} should contain all the elements of
@@ -702,27 +2163,32 @@ public abstract class AbstractClirrMojo
      *   previousArtifacts.
      * @throws MalformedURLException Failed to convert a file to an URL.
      */
-    protected static ClassLoader createClassLoader( Collection<Artifact> artifacts, Set<Artifact> previousArtifacts )
+    protected ClassLoader createClassLoader( Collection<Artifact> artifacts, Set<Artifact> previousArtifacts )
         throws MalformedURLException
     {
-        URLClassLoader cl = null;
-        if ( !artifacts.isEmpty() )
+        List<File> files = new ArrayList<File>( artifacts.size() );
+        for ( Iterator<Artifact> i = artifacts.iterator(); i.hasNext(); )
         {
-            List<URL> urls = new ArrayList<URL>( artifacts.size() );
-            for ( Iterator<Artifact> i = artifacts.iterator(); i.hasNext(); )
-            {
-                Artifact artifact = i.next();
-                if ( previousArtifacts == null || !previousArtifacts.contains( artifact ) )
-                {
-                    urls.add( artifact.getFile().toURI().toURL() );
-                }
-            }
-            if ( !urls.isEmpty() )
+            Artifact artifact = i.next();
+            if ( previousArtifacts == null || !previousArtifacts.contains( artifact ) )
             {
-                cl = new URLClassLoader( urls.toArray( new URL[urls.size()] ) );
+                files.add( artifact.getFile() );
             }
         }
-        return cl;
+        return getClasspathCache().getClassLoader( files );
+    }
+
+    protected ClasspathCache getClasspathCache()
+    {
+        long maxBytes = classpathCacheSize * 1024L * 1024L;
+        ClasspathCache cache = ClasspathCache.getInstance( session, maxBytes );
+        if ( cache.getMaxBytes() != maxBytes && !classpathCacheSizeIgnored )
+        {
+            classpathCacheSizeIgnored = true;
+            getLog().warn( "Ignoring classpathCacheSize " + classpathCacheSize + ", the classpath cache of this build"
+                + " was created with " + cache.getMaxBytes() / ( 1024L * 1024L ) + " MB by an earlier module" );
+        }
+        return cache;
     }
 
     protected static Severity convertSeverity( String minSeverity )
@@ -769,7 +2235,7 @@ public abstract class AbstractClirrMojo
 
         if ( comparisonArtifacts == null || comparisonArtifacts.length == 0 )
         {
-            Artifact previousArtifact = getComparisonArtifact();
+            Artifact previousArtifact = getComparisonArtifact( project, comparisonVersion );
             if ( previousArtifact.getVersion() == null )
             {
                 getLog().info( "Not generating Clirr report as there is no previous version of the library to compare against" );
@@ -839,4 +2305,122 @@ public abstract class AbstractClirrMojo
             reportDiffs( checker, origClasses2, currentClasses2 );
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The resolved jars of a previous version, which are still to be parsed, or its classes, if
+     * they were stored already. Only {@link #parse()} may run on another thread, as it uses no
+     * Maven components.
+     */
+    static final class PreviousJars
+    {
+        private final JavaTypeRepository stored;
+
+        private final ClirrClassFilter classFilter;
+
+        private final Artifact release;
+
+        private final ApiHistoryStore history;
+
+        private final ApiSnapshotCache cache;
+
+        private final String cacheKey;
+
+        private final File[] jars;
+
+        private final ClassLoader dependencyClassLoader;
+
+        private final ClassLoader prevArtifactClassLoader;
+
+        private final ClassLoader typeClassLoader;
+
+        private String version;
+
+        private String digest;
+
+        PreviousJars( JavaTypeRepository stored )
+        {
+            this( stored, null, null, null, null, null, null, null, null, null );
+        }
+
+        PreviousJars( ClirrClassFilter classFilter, Artifact release, ApiHistoryStore history,
+                      ApiSnapshotCache cache, String cacheKey, File[] jars, ClassLoader dependencyClassLoader,
+                      ClassLoader prevArtifactClassLoader, ClassLoader typeClassLoader )
+        {
+            this( null, classFilter, release, history, cache, cacheKey, jars, dependencyClassLoader,
+                  prevArtifactClassLoader, typeClassLoader );
+        }
+
+        private PreviousJars( JavaTypeRepository stored, ClirrClassFilter classFilter, Artifact release,
+                              ApiHistoryStore history, ApiSnapshotCache cache, String cacheKey, File[] jars,
+                              ClassLoader dependencyClassLoader, ClassLoader prevArtifactClassLoader,
+                              ClassLoader typeClassLoader )
+        {
+            this.stored = stored;
+            this.classFilter = classFilter;
+            this.release = release;
+            this.history = history;
+            this.cache = cache;
+            this.cacheKey = cacheKey;
+            this.jars = jars;
+            this.dependencyClassLoader = dependencyClassLoader;
+            this.prevArtifactClassLoader = prevArtifactClassLoader;
+            this.typeClassLoader = typeClassLoader;
+        }
+
+        /**
+         * The version compared against, if these are the jars of a baseline.
+         */
+        String getVersion()
+        {
+            return version;
+        }
+
+        void setVersion( String version )
+        {
+            this.version = version;
+        }
+
+        /**
+         * Identifies the resolved artifacts by their ids and content, null if they are not known.
+         */
+        String getDigest()
+        {
+            return digest;
+        }
+
+        void setDigest( String digest )
+        {
+            this.digest = digest;
+        }
+
+        /**
+         * Whether parsing may resolve dependencies, which must not happen on another thread.
+         */
+        boolean isResolvingLazily()
+        {
+            return dependencyClassLoader instanceof LazyDependencyClassLoader;
+        }
+
+        boolean isStoring()
+        {
+            return history != null || cacheKey != null;
+        }
+
+        /**
+         * Parses the jars: all of their classes, if they are stored, the selected ones otherwise.
+         *
+         * @return The classes, or null if the classes were stored already.
+         */
+        JavaType[] parse()
+        {
+            if ( stored != null )
+            {
+                return null;
+            }
+            // keep all types in the snapshots, the filter is applied when reading them back
+            return BcelTypeArrayBuilder.createClassSet( jars, dependencyClassLoader,
+                                                        isStoring() ? new ClirrClassFilter( null, null )
+                                                                        : classFilter );
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.sf.clirr.core.ApiDifference;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Excludes differences which were accepted, given by their {@link DifferenceFingerprint}s. Each
+ * difference is checked with a single lookup, however many differences are accepted.
+ */
+public class AcceptedDifferencesFilter
+    implements ApiDifferenceFilter
+{
+    private final Set<String> fingerprints;
+
+    public AcceptedDifferencesFilter( Set<String> fingerprints )
+    {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Returns the number of accepted differences.
+     */
+    public int size()
+    {
+        return fingerprints.size();
+    }
+
+    public boolean shouldInclude( ApiDifference apiDiff )
+    {
+        return !fingerprints.contains( DifferenceFingerprint.of( apiDiff ) );
+    }
+
+    /**
+     * Reads a file written by {@link #write(File, Collection)}. Only the first word of each line
+     * is read, empty lines and lines starting with <code>#</code> are skipped.
+     */
+    public static AcceptedDifferencesFilter read( File file )
+        throws IOException
+    {
+        Set<String> fingerprints = new HashSet<String>();
+        BufferedReader in =
+            new BufferedReader( new InputStreamReader( new FileInputStream( file ), ApiSnapshot.UTF8 ) );
+        try
+        {
+            String line;
+            while ( ( line = in.readLine() ) != null )
+            {
+                line = line.trim();
+                if ( line.length() == 0 || line.charAt( 0 ) == '#' )
+                {
+                    continue;
+                }
+                int end = line.indexOf( ' ' );
+                fingerprints.add( end < 0 ? line : line.substring( 0, end ) );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return new AcceptedDifferencesFilter( fingerprints );
+    }
+
+    /**
+     * Writes the fingerprints of differences, one per line, followed by the message code and the
+     * affected class and member for reviewers. The lines are sorted by class, so the file changes
+     * little from one version to the next.
+     */
+    public static void write( File file, Collection<ApiDifference> differences )
+        throws IOException
+    {
+        Map<String, String> lines = new TreeMap<String, String>();
+        for ( ApiDifference difference : differences )
+        {
+            int code = difference.getMessage().getId();
+            String member = DifferenceFingerprint.getMember( difference );
+            String description = code + " " + difference.getAffectedClass() + ( member != null ? " " + member : "" );
+            lines.put( difference.getAffectedClass() + '\0' + ( member != null ? member : "" ) + '\0' + code,
+                       DifferenceFingerprint.of( code, difference.getAffectedClass(), member ) + " " + description );
+        }
+
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        Writer out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), ApiSnapshot.UTF8 ) );
+        try
+        {
+            out.write( "# Accepted differences: fingerprint, message code, class and member\n" );
+            for ( String line : lines.values() )
+            {
+                out.write( line );
+                out.write( '\n' );
+            }
+            out.close();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+}
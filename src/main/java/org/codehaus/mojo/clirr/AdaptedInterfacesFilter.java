@@ -1,6 +1,7 @@
 package org.codehaus.mojo.clirr;
 
-import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -9,13 +10,13 @@ import net.sf.clirr.core.ApiDifference;
 public class AdaptedInterfacesFilter implements ApiDifferenceFilter
 {
 
-    private Set<String> annotations;
-    private JavaTypeRepository originalClasses;
-    private MessageCodeFilter adaptedInterfaceFilter = ExternallyInvokedFilter.EXTERNALLY_INVOKED_FILTER;
+    private final Set<String> annotations;
+    private final JavaTypeRepository originalClasses;
+    private final MessageCodeFilter adaptedInterfaceFilter = ExternallyInvokedFilter.EXTERNALLY_INVOKED_FILTER;
 
     public AdaptedInterfacesFilter( Set<String> adapterAnnotations, JavaTypeRepository origClasses )
     {
-        this.annotations = adapterAnnotations;
+        this.annotations = Collections.unmodifiableSet( new HashSet<String>( adapterAnnotations ) );
         this.originalClasses = origClasses;
     }
 
@@ -24,10 +25,9 @@ public class AdaptedInterfacesFilter implements ApiDifferenceFilter
         try {
             if(apiDiff.getAffectedMethod() != null)
             {
-                Class<?> clazz = originalClasses.get( apiDiff.getAffectedClass());
-                for(Annotation annotation : clazz.getAnnotations())
+                for(String annotation : originalClasses.getClassAnnotations( apiDiff.getAffectedClass() ))
                 {
-                    if(annotations.contains( annotation.annotationType().getName() ))
+                    if(annotations.contains( annotation ))
                     {
                         return adaptedInterfaceFilter.shouldInclude( apiDiff );
                     }
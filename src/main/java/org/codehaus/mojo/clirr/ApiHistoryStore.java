@@ -0,0 +1,241 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.clirr.core.spi.JavaType;
+import net.sf.clirr.core.spi.Method;
+
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * A local store of the API snapshots of released versions. Every version is kept in its own
+ * snapshot file under <code>groupId/artifactId/version.clirr</code>, which is written once and
+ * never changed, so the store is shared by concurrent builds without locking. Lookups of types
+ * and members use the indices of the mapped snapshot files.
+ *
+ * @see ApiSnapshot
+ */
+public class ApiHistoryStore
+{
+    private static final String EXTENSION = "." + ApiSnapshot.TYPE;
+
+    private static final Comparator<String> VERSION_ORDER = new Comparator<String>()
+    {
+        public int compare( String version1, String version2 )
+        {
+            return new DefaultArtifactVersion( version1 ).compareTo( new DefaultArtifactVersion( version2 ) );
+        }
+    };
+
+    private final File directory;
+
+    public ApiHistoryStore( File directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Whether the store holds the snapshot of a version.
+     */
+    public boolean contains( String groupId, String artifactId, String version )
+    {
+        return getSnapshotFile( groupId, artifactId, version ).isFile();
+    }
+
+    /**
+     * Reads the snapshot of a version.
+     *
+     * @return The types of the version, or null if the store has no snapshot of the version.
+     * @throws IOException Reading the snapshot failed.
+     */
+    public SnapshotTypeRepository read( String groupId, String artifactId, String version,
+                                        ClirrClassFilter classFilter )
+        throws IOException
+    {
+        File file = getSnapshotFile( groupId, artifactId, version );
+        return file.isFile() ? ApiSnapshot.read( file, classFilter ) : null;
+    }
+
+    /**
+     * Writes the snapshot of a version, unless the store already has it.
+     *
+     * @param apiTypes All types of the version.
+     * @param annotations Answers the annotations of the types of the version.
+     */
+    public void store( String groupId, String artifactId, String version, JavaType[] apiTypes,
+                       JavaTypeRepository annotations )
+        throws IOException
+    {
+        File file = getSnapshotFile( groupId, artifactId, version );
+        if ( file.isFile() )
+        {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        File temporary = createTemporaryFile( file, version );
+        try
+        {
+            ApiSnapshot.write( apiTypes, annotations, temporary );
+            publish( temporary, file );
+        }
+        finally
+        {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Copies an existing snapshot of a version into the store, unless the store already has it.
+     */
+    public void store( String groupId, String artifactId, String version, File snapshot )
+        throws IOException
+    {
+        File file = getSnapshotFile( groupId, artifactId, version );
+        if ( file.isFile() )
+        {
+            return;
+        }
+        file.getParentFile().mkdirs();
+        File temporary = createTemporaryFile( file, version );
+        try
+        {
+            FileUtils.copyFile( snapshot, temporary );
+            publish( temporary, file );
+        }
+        finally
+        {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Returns the versions in the store, from the oldest one.
+     */
+    public List<String> getVersions( String groupId, String artifactId )
+    {
+        List<String> versions = new ArrayList<String>();
+        File[] files = new File( new File( directory, groupId ), artifactId ).listFiles();
+        if ( files != null )
+        {
+            for ( int i = 0; i < files.length; i++ )
+            {
+                String name = files[i].getName();
+                if ( name.endsWith( EXTENSION ) && files[i].isFile() )
+                {
+                    versions.add( name.substring( 0, name.length() - EXTENSION.length() ) );
+                }
+            }
+        }
+        Collections.sort( versions, VERSION_ORDER );
+        return versions;
+    }
+
+    /**
+     * Finds the oldest version in the store, which has a type or member.
+     *
+     * @param className The fully qualified name of the type.
+     * @param member A field name, a method name, or a method name with its parameter types like
+     *   <code>add(int, java.lang.String)</code>, or null to find the type. Constructors are
+     *   named <code>&lt;init&gt;</code>.
+     * @return The version, or null if no version in the store has the type or member.
+     */
+    public String findFirstVersion( String groupId, String artifactId, String className, String member )
+        throws IOException
+    {
+        for ( String version : getVersions( groupId, artifactId ) )
+        {
+            SnapshotTypeRepository classes = read( groupId, artifactId, version, null );
+            if ( classes != null && hasMember( classes, className, member ) )
+            {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasMember( SnapshotTypeRepository classes, String className, String member )
+    {
+        SnapshotJavaType type = classes.getType( className );
+        if ( !type.isApiType() )
+        {
+            return false;
+        }
+        if ( member == null )
+        {
+            return true;
+        }
+
+        int parameters = member.indexOf( '(' );
+        if ( parameters >= 0 )
+        {
+            String name = member.substring( 0, parameters ).trim();
+            String list = member.substring( parameters + 1, member.lastIndexOf( ')' ) ).trim();
+            String[] parameterTypes = list.length() == 0 ? new String[0] : list.split( "\\s*,\\s*" );
+            return type.getMethod( name, parameterTypes ) != null;
+        }
+
+        if ( type.getField( member ) != null )
+        {
+            return true;
+        }
+        Method[] methods = type.getMethods();
+        for ( int i = 0; i < methods.length; i++ )
+        {
+            if ( methods[i].getName().equals( member ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private File getSnapshotFile( String groupId, String artifactId, String version )
+    {
+        return new File( new File( new File( directory, groupId ), artifactId ), version + EXTENSION );
+    }
+
+    /**
+     * Creates a temporary file next to the snapshot file of a version. The prefix keeps short
+     * versions like <code>1</code> above the three characters a temporary file name needs.
+     */
+    private static File createTemporaryFile( File file, String version )
+        throws IOException
+    {
+        return File.createTempFile( "clirr-" + version, ".tmp", file.getParentFile() );
+    }
+
+    /**
+     * Moves a completely written snapshot into place. If a concurrent build published the same
+     * version first, its snapshot is kept.
+     */
+    private static void publish( File temporary, File file )
+        throws IOException
+    {
+        if ( !temporary.renameTo( file ) && !file.isFile() )
+        {
+            throw new IOException( "Failed to move " + temporary + " to " + file );
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.sf.clirr.core.spi.Field;
+import net.sf.clirr.core.spi.JavaType;
+import net.sf.clirr.core.spi.Method;
+import net.sf.clirr.core.spi.Scope;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Reads and writes API snapshots: the types of an artifact with their members,
+ * hierarchy and annotations, which is all Clirr and the filters need to compare against
+ * a previous version. Supertypes outside of the artifact are included with their members,
+ * so that a snapshot is compared without resolving the dependencies of the artifact.
+ * <p>
+ * A snapshot is read by mapping the file into memory, and only the types and members that
+ * are compared or looked up are decoded. The layout, with all numbers as big-endian ints
+ * and all offsets from the start of the file, is:
+ * <ul>
+ * <li>a header of {@link #MAGIC}, {@link #VERSION}, the string count, the string table offset,
+ * the type count and the type table offset;</li>
+ * <li>the lists, constants, member tables and type records of all types, in no particular
+ * order;</li>
+ * <li>the string table: the offset of each string, followed by the strings as their UTF-8
+ * length and bytes;</li>
+ * <li>the type table: the name and record offset of each type, sorted by name.</li>
+ * </ul>
+ * Names are indices into the string table, -1 for none. A list is its length followed by
+ * its string indices. A type record holds the flags, the declared and effective scope, the
+ * containing class, the offsets of the superclass, interface, inner class and annotation
+ * lists, and the offsets of the method and field tables. A member table is its length
+ * followed by fixed size entries of the name, the type (the return type of methods), the
+ * argument list of methods or the constant of fields, the flags, the scopes and the offset
+ * of the annotation list.
+ */
+public final class ApiSnapshot
+{
+    /**
+     * The classifier of the attached snapshot artifact.
+     */
+    public static final String CLASSIFIER = "api-snapshot";
+
+    /**
+     * The type, and extension, of the attached snapshot artifact.
+     */
+    public static final String TYPE = "clirr";
+
+    public static final int MAGIC = 0x434c5253;
+
+    public static final int VERSION = 2;
+
+    static final int INTERFACE = 1;
+
+    static final int ABSTRACT = 2;
+
+    static final int FINAL = 4;
+
+    static final int ARRAY = 8;
+
+    static final int PRIMITIVE = 16;
+
+    static final int API = 32;
+
+    static final int STATIC = 64;
+
+    static final int DEPRECATED = 128;
+
+    static final Scope[] SCOPES = new Scope[]{ Scope.PUBLIC, Scope.PROTECTED, Scope.PACKAGE, Scope.PRIVATE };
+
+    static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    static final int HEADER_SIZE = 24;
+
+    static final int TYPE_FLAGS = 0;
+
+    static final int TYPE_SCOPES = 4;
+
+    static final int TYPE_CONTAINING_CLASS = 8;
+
+    static final int TYPE_SUPERCLASSES = 12;
+
+    static final int TYPE_INTERFACES = 16;
+
+    static final int TYPE_INNER_CLASSES = 20;
+
+    static final int TYPE_ANNOTATIONS = 24;
+
+    static final int TYPE_METHODS = 28;
+
+    static final int TYPE_FIELDS = 32;
+
+    static final int TYPE_RECORD_SIZE = 36;
+
+    static final int MEMBER_NAME = 0;
+
+    static final int MEMBER_TYPE = 4;
+
+    static final int MEMBER_DETAIL = 8;
+
+    static final int MEMBER_FLAGS = 12;
+
+    static final int MEMBER_SCOPES = 16;
+
+    static final int MEMBER_ANNOTATIONS = 20;
+
+    static final int MEMBER_ENTRY_SIZE = 24;
+
+    private ApiSnapshot()
+    {
+        // static access only
+    }
+
+    /**
+     * Writes a snapshot of <code>apiTypes</code> and their supertypes.
+     *
+     * @param apiTypes The types of the artifact.
+     * @param annotations Answers the annotations of the types of the artifact.
+     * @param file The file to write.
+     * @throws IOException Writing the file failed.
+     */
+    public static void write( JavaType[] apiTypes, JavaTypeRepository annotations, File file )
+        throws IOException
+    {
+        Map<String, JavaType> types = new LinkedHashMap<String, JavaType>();
+        Set<String> apiNames = new HashSet<String>();
+        for ( int i = 0; i < apiTypes.length; i++ )
+        {
+            types.put( apiTypes[i].getName(), apiTypes[i] );
+            apiNames.add( apiTypes[i].getName() );
+        }
+        for ( int i = 0; i < apiTypes.length; i++ )
+        {
+            addSupertypes( apiTypes[i], types );
+        }
+
+        Writer writer = new Writer();
+        Map<String, Integer> records = new TreeMap<String, Integer>();
+        for ( JavaType type : types.values() )
+        {
+            records.put( type.getName(), Integer.valueOf(
+                writer.writeType( type, apiNames.contains( type.getName() ), annotations ) ) );
+        }
+        byte[] bytes = writer.finish( records );
+
+        file.getParentFile().mkdirs();
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( file );
+            out.write( bytes );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * Reads a snapshot. The file is mapped into memory rather than read, and must not be
+     * changed while the returned types are in use.
+     *
+     * @param file The file to read.
+     * @param classFilter Selects the types to compare, may be null.
+     * @return The types of the snapshot.
+     * @throws IOException Reading the file failed, or it is not a snapshot of a supported version.
+     */
+    public static SnapshotTypeRepository read( File file, ClirrClassFilter classFilter )
+        throws IOException
+    {
+        ByteBuffer buffer;
+        RandomAccessFile in = new RandomAccessFile( file, "r" );
+        try
+        {
+            FileChannel channel = in.getChannel();
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        }
+        finally
+        {
+            in.close();
+        }
+
+        if ( buffer.capacity() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC )
+        {
+            throw new IOException( file + " is not an API snapshot" );
+        }
+        int version = buffer.getInt( 4 );
+        if ( version != VERSION )
+        {
+            throw new IOException( file + " is an API snapshot of unsupported version " + version );
+        }
+        return new SnapshotTypeRepository( new SnapshotBuffer( buffer ), classFilter );
+    }
+
+    private static void addSupertypes( JavaType type, Map<String, JavaType> types )
+    {
+        JavaType[] superClasses = type.getSuperClasses();
+        for ( int i = 0; i < superClasses.length; i++ )
+        {
+            if ( !types.containsKey( superClasses[i].getName() ) )
+            {
+                types.put( superClasses[i].getName(), superClasses[i] );
+                addSupertypes( superClasses[i], types );
+            }
+        }
+        JavaType[] interfaces = type.getAllInterfaces();
+        for ( int i = 0; i < interfaces.length; i++ )
+        {
+            if ( !types.containsKey( interfaces[i].getName() ) )
+            {
+                types.put( interfaces[i].getName(), interfaces[i] );
+                addSupertypes( interfaces[i], types );
+            }
+        }
+    }
+
+    private static int indexOf( Scope scope )
+    {
+        for ( int i = 0; i < SCOPES.length; i++ )
+        {
+            if ( SCOPES[i] == scope )
+            {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static String[] getNames( JavaType[] types )
+    {
+        String[] names = new String[types.length];
+        for ( int i = 0; i < types.length; i++ )
+        {
+            names[i] = types[i].getName();
+        }
+        return names;
+    }
+
+    private static Set<String> getClassAnnotations( JavaTypeRepository annotations, String name )
+    {
+        try
+        {
+            return annotations.getClassAnnotations( name );
+        }
+        catch ( NoSuchElementException e )
+        {
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Lays out a snapshot in memory, interning the strings as they are written.
+     */
+    private static final class Writer
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream( bytes );
+
+        private final Map<String, Integer> stringIndices = new HashMap<String, Integer>();
+
+        private final List<String> strings = new ArrayList<String>();
+
+        Writer()
+            throws IOException
+        {
+            out.write( new byte[HEADER_SIZE] );
+        }
+
+        int writeType( JavaType type, boolean api, JavaTypeRepository annotations )
+            throws IOException
+        {
+            String name = type.getName();
+            int superClasses = writeList( getNames( type.getSuperClasses() ) );
+            int interfaces = writeList( getNames( type.getAllInterfaces() ) );
+            int innerClasses = writeList( getNames( type.getInnerClasses() ) );
+            int typeAnnotations = writeList( api ? getClassAnnotations( annotations, name )
+                            : Collections.<String>emptySet() );
+
+            Method[] methods = type.getMethods();
+            int[] methodArguments = new int[methods.length];
+            int[] methodAnnotations = new int[methods.length];
+            for ( int i = 0; i < methods.length; i++ )
+            {
+                String[] argumentTypes = getNames( methods[i].getArgumentTypes() );
+                methodArguments[i] = writeList( argumentTypes );
+                Set<String> names = Collections.emptySet();
+                if ( api )
+                {
+                    try
+                    {
+                        names = annotations.getMethodAnnotations( name, methods[i].getName(), argumentTypes );
+                    }
+                    catch ( NoSuchElementException e )
+                    {
+                        // not loadable, so no annotations to record
+                    }
+                }
+                methodAnnotations[i] = writeList( names );
+            }
+
+            Field[] fields = type.getFields();
+            int[] fieldConstants = new int[fields.length];
+            int[] fieldAnnotations = new int[fields.length];
+            for ( int i = 0; i < fields.length; i++ )
+            {
+                fieldConstants[i] = writeConstant( fields[i].getConstantValue() );
+                Set<String> names = Collections.emptySet();
+                if ( api )
+                {
+                    try
+                    {
+                        names = annotations.getFieldAnnotations( name, fields[i].getName() );
+                    }
+                    catch ( NoSuchElementException e )
+                    {
+                        // not loadable, or not public, so no annotations to record
+                    }
+                }
+                fieldAnnotations[i] = writeList( names );
+            }
+
+            int methodTable = out.size();
+            out.writeInt( methods.length );
+            for ( int i = 0; i < methods.length; i++ )
+            {
+                Method method = methods[i];
+                out.writeInt( intern( method.getName() ) );
+                out.writeInt( intern( method.getReturnType() == null ? null : method.getReturnType().getName() ) );
+                out.writeInt( methodArguments[i] );
+                out.writeInt( ( method.isFinal() ? FINAL : 0 ) | ( method.isStatic() ? STATIC : 0 )
+                    | ( method.isAbstract() ? ABSTRACT : 0 ) | ( method.isDeprecated() ? DEPRECATED : 0 ) );
+                writeScopes( method.getDeclaredScope(), method.getEffectiveScope() );
+                out.writeInt( methodAnnotations[i] );
+            }
+
+            int fieldTable = out.size();
+            out.writeInt( fields.length );
+            for ( int i = 0; i < fields.length; i++ )
+            {
+                Field field = fields[i];
+                out.writeInt( intern( field.getName() ) );
+                out.writeInt( intern( field.getType().getName() ) );
+                out.writeInt( fieldConstants[i] );
+                out.writeInt( ( field.isFinal() ? FINAL : 0 ) | ( field.isStatic() ? STATIC : 0 )
+                    | ( field.isDeprecated() ? DEPRECATED : 0 ) );
+                writeScopes( field.getDeclaredScope(), field.getEffectiveScope() );
+                out.writeInt( fieldAnnotations[i] );
+            }
+
+            int record = out.size();
+            out.writeInt( ( type.isInterface() ? INTERFACE : 0 ) | ( type.isAbstract() ? ABSTRACT : 0 )
+                | ( type.isFinal() ? FINAL : 0 ) | ( type.isArray() ? ARRAY : 0 )
+                | ( type.isPrimitive() ? PRIMITIVE : 0 ) | ( api ? API : 0 ) );
+            writeScopes( type.getDeclaredScope(), type.getEffectiveScope() );
+            JavaType containingClass = type.getContainingClass();
+            out.writeInt( intern( containingClass == null ? null : containingClass.getName() ) );
+            out.writeInt( superClasses );
+            out.writeInt( interfaces );
+            out.writeInt( innerClasses );
+            out.writeInt( typeAnnotations );
+            out.writeInt( methodTable );
+            out.writeInt( fieldTable );
+            return record;
+        }
+
+        /**
+         * Appends the string and type tables, and returns the complete snapshot.
+         *
+         * @param records The record offsets by type name, sorted by name.
+         */
+        byte[] finish( Map<String, Integer> records )
+            throws IOException
+        {
+            for ( String name : records.keySet() )
+            {
+                intern( name );
+            }
+
+            int stringTable = out.size();
+            int offset = stringTable + 4 * strings.size();
+            byte[][] encoded = new byte[strings.size()][];
+            for ( int i = 0; i < encoded.length; i++ )
+            {
+                encoded[i] = strings.get( i ).getBytes( UTF8 );
+                out.writeInt( offset );
+                offset += 4 + encoded[i].length;
+            }
+            for ( int i = 0; i < encoded.length; i++ )
+            {
+                out.writeInt( encoded[i].length );
+                out.write( encoded[i] );
+            }
+
+            int typeTable = out.size();
+            for ( Map.Entry<String, Integer> record : records.entrySet() )
+            {
+                out.writeInt( intern( record.getKey() ) );
+                out.writeInt( record.getValue().intValue() );
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.wrap( bytes.toByteArray() );
+            header.putInt( 0, MAGIC );
+            header.putInt( 4, VERSION );
+            header.putInt( 8, strings.size() );
+            header.putInt( 12, stringTable );
+            header.putInt( 16, records.size() );
+            header.putInt( 20, typeTable );
+            return header.array();
+        }
+
+        private int intern( String value )
+        {
+            if ( value == null )
+            {
+                return -1;
+            }
+            Integer index = stringIndices.get( value );
+            if ( index == null )
+            {
+                index = Integer.valueOf( strings.size() );
+                stringIndices.put( value, index );
+                strings.add( value );
+            }
+            return index.intValue();
+        }
+
+        private int writeList( Set<String> values )
+            throws IOException
+        {
+            return writeList( values.toArray( new String[values.size()] ) );
+        }
+
+        private int writeList( String[] values )
+            throws IOException
+        {
+            int offset = out.size();
+            out.writeInt( values.length );
+            for ( int i = 0; i < values.length; i++ )
+            {
+                out.writeInt( intern( values[i] ) );
+            }
+            return offset;
+        }
+
+        private void writeScopes( Scope declaredScope, Scope effectiveScope )
+            throws IOException
+        {
+            out.writeByte( indexOf( declaredScope ) );
+            out.writeByte( indexOf( effectiveScope ) );
+            out.writeShort( 0 );
+        }
+
+        private int writeConstant( Object value )
+            throws IOException
+        {
+            if ( value == null )
+            {
+                return -1;
+            }
+            int offset = out.size();
+            if ( value instanceof Integer )
+            {
+                out.writeByte( 'I' );
+                out.writeInt( ( (Integer) value ).intValue() );
+            }
+            else if ( value instanceof Long )
+            {
+                out.writeByte( 'J' );
+                out.writeLong( ( (Long) value ).longValue() );
+            }
+            else if ( value instanceof Float )
+            {
+                out.writeByte( 'F' );
+                out.writeFloat( ( (Float) value ).floatValue() );
+            }
+            else if ( value instanceof Double )
+            {
+                out.writeByte( 'D' );
+                out.writeDouble( ( (Double) value ).doubleValue() );
+            }
+            else if ( value instanceof Short )
+            {
+                out.writeByte( 'S' );
+                out.writeShort( ( (Short) value ).shortValue() );
+            }
+            else if ( value instanceof Byte )
+            {
+                out.writeByte( 'B' );
+                out.writeByte( ( (Byte) value ).byteValue() );
+            }
+            else if ( value instanceof Character )
+            {
+                out.writeByte( 'C' );
+                out.writeChar( ( (Character) value ).charValue() );
+            }
+            else if ( value instanceof Boolean )
+            {
+                out.writeByte( 'Z' );
+                out.writeBoolean( ( (Boolean) value ).booleanValue() );
+            }
+            else
+            {
+                out.writeByte( 'T' );
+                out.writeInt( intern( value.toString() ) );
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import net.sf.clirr.core.spi.JavaType;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * A cache of the API snapshots of parsed jars in a directory, which can be shared by several
+ * machines, for example on a network file system. Entries are named by the SHA-1 digest of the
+ * jars they were parsed from, so an entry never changes once it is written. Entries are written
+ * to a temporary file and renamed into place, so readers never see a partial entry and need no
+ * locks. When the cache grows beyond its size, the least recently used entries are evicted:
+ * they are renamed, so that no new reader finds them, and deleted once builds which mapped
+ * them into memory before are done with them.
+ *
+ * @see ApiSnapshot
+ */
+public class ApiSnapshotCache
+{
+    private static final String EXTENSION = "." + ApiSnapshot.TYPE;
+
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    /**
+     * Temporary files left behind by failed builds are deleted after this time.
+     */
+    private static final long TEMPORARY_LIFETIME = 60 * 60 * 1000L;
+
+    private static final String EVICTED_EXTENSION = ".evicted";
+
+    /**
+     * Evicted entries may still be mapped by the builds that read them before, possibly on other
+     * machines, so they are only deleted after this time.
+     */
+    private static final long EVICTED_LIFETIME = 60 * 60 * 1000L;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+
+    private final long maxSize;
+
+    /**
+     * @param maxSize The size in bytes the cache is kept below.
+     */
+    public ApiSnapshotCache( File directory, long maxSize )
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates the key of the API snapshot of some jars, which is independent of their order
+     * and location.
+     *
+     * @param dependencies Identify the dependencies the jars were parsed against, like the
+     *   {@link #digest(File) digests} of their jars.
+     */
+    public static String createKey( File[] jars, Collection<String> dependencies )
+        throws IOException
+    {
+        String[] digests = new String[jars.length];
+        for ( int i = 0; i < jars.length; i++ )
+        {
+            digests[i] = digest( jars[i] );
+        }
+        Arrays.sort( digests );
+        String[] dependencyKeys = dependencies.toArray( new String[dependencies.size()] );
+        Arrays.sort( dependencyKeys );
+
+        MessageDigest digest = createDigest();
+        digest.update( ApiSnapshot.UTF8.encode( "clirr-api-snapshot-" + ApiSnapshot.VERSION ) );
+        for ( int i = 0; i < digests.length; i++ )
+        {
+            digest.update( ApiSnapshot.UTF8.encode( digests[i] ) );
+        }
+        digest.update( ApiSnapshot.UTF8.encode( "|dependencies" ) );
+        for ( int i = 0; i < dependencyKeys.length; i++ )
+        {
+            digest.update( ApiSnapshot.UTF8.encode( "|" + dependencyKeys[i] ) );
+        }
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Reads a cached API snapshot, and marks it as recently used.
+     *
+     * @return The types of the snapshot, or null if the cache does not have it.
+     * @throws IOException Reading the snapshot failed.
+     */
+    public SnapshotTypeRepository read( String key, ClirrClassFilter classFilter )
+        throws IOException
+    {
+        File file = getFile( key );
+        SnapshotTypeRepository classes;
+        try
+        {
+            classes = ApiSnapshot.read( file, classFilter );
+        }
+        catch ( FileNotFoundException e )
+        {
+            // missing, or just evicted by another build
+            return null;
+        }
+        // entries are never modified, so the modification time records the last use
+        file.setLastModified( System.currentTimeMillis() );
+        return classes;
+    }
+
+    /**
+     * Writes an API snapshot to the cache, unless the cache already has it, and evicts the
+     * least recently used entries if the cache grew too large.
+     *
+     * @param apiTypes All types of the snapshot.
+     * @param annotations Answers the annotations of the types.
+     * @return The cache entry.
+     */
+    public File store( String key, JavaType[] apiTypes, JavaTypeRepository annotations )
+        throws IOException
+    {
+        File file = getFile( key );
+        if ( !file.isFile() )
+        {
+            file.getParentFile().mkdirs();
+            File temporary = File.createTempFile( key, TEMPORARY_EXTENSION, file.getParentFile() );
+            try
+            {
+                ApiSnapshot.write( apiTypes, annotations, temporary );
+                // if another build published the same key first, its identical entry is kept
+                if ( !temporary.renameTo( file ) && !file.isFile() )
+                {
+                    throw new IOException( "Failed to move " + temporary + " to " + file );
+                }
+            }
+            finally
+            {
+                temporary.delete();
+            }
+        }
+        evict( file );
+        return file;
+    }
+
+    /**
+     * Returns the file of a cache entry, which may not exist.
+     */
+    public File getFile( String key )
+    {
+        return new File( new File( directory, key.substring( 0, 2 ) ), key + EXTENSION );
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is below its size, and deletes the
+     * entries evicted long enough ago. Several builds may evict at the same time, so entries may
+     * already be gone.
+     *
+     * @param keep An entry not to delete.
+     */
+    private void evict( File keep )
+    {
+        List<File> entries = new ArrayList<File>();
+        long size = 0;
+        long now = System.currentTimeMillis();
+        File[] buckets = directory.listFiles();
+        for ( int i = 0; buckets != null && i < buckets.length; i++ )
+        {
+            File[] files = buckets[i].listFiles();
+            for ( int j = 0; files != null && j < files.length; j++ )
+            {
+                String name = files[j].getName();
+                if ( name.endsWith( EXTENSION ) )
+                {
+                    entries.add( files[j] );
+                    size += files[j].length();
+                }
+                else if ( name.endsWith( TEMPORARY_EXTENSION )
+                    && now - files[j].lastModified() > TEMPORARY_LIFETIME )
+                {
+                    files[j].delete();
+                }
+                else if ( name.endsWith( EVICTED_EXTENSION )
+                    && now - files[j].lastModified() > EVICTED_LIFETIME )
+                {
+                    files[j].delete();
+                }
+            }
+        }
+        if ( size <= maxSize )
+        {
+            return;
+        }
+
+        final long[] lastUsed = new long[entries.size()];
+        for ( int i = 0; i < lastUsed.length; i++ )
+        {
+            lastUsed[i] = entries.get( i ).lastModified();
+        }
+        Integer[] order = new Integer[lastUsed.length];
+        for ( int i = 0; i < order.length; i++ )
+        {
+            order[i] = Integer.valueOf( i );
+        }
+        Arrays.sort( order, new Comparator<Integer>()
+        {
+            public int compare( Integer entry1, Integer entry2 )
+            {
+                long time1 = lastUsed[entry1.intValue()];
+                long time2 = lastUsed[entry2.intValue()];
+                return time1 < time2 ? -1 : ( time1 == time2 ? 0 : 1 );
+            }
+        } );
+
+        for ( int i = 0; i < order.length && size > maxSize; i++ )
+        {
+            File entry = entries.get( order[i].intValue() );
+            if ( entry.equals( keep ) )
+            {
+                continue;
+            }
+            long length = entry.length();
+            File evicted = new File( entry.getParentFile(), entry.getName() + "-" + UUID.randomUUID()
+                + EVICTED_EXTENSION );
+            if ( entry.renameTo( evicted ) )
+            {
+                // the modification time now records the eviction
+                evicted.setLastModified( now );
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * Returns the SHA-1 digest of the content of a file.
+     */
+    public static String digest( File file )
+        throws IOException
+    {
+        MessageDigest digest = createDigest();
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = in.read( buffer ) ) > 0 )
+            {
+                digest.update( buffer, 0, read );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return toHex( digest.digest() );
+    }
+
+    static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-1 is not supported", e );
+        }
+    }
+
+    static String toHex( byte[] bytes )
+    {
+        char[] chars = new char[bytes.length * 2];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            chars[2 * i] = HEX[( bytes[i] >> 4 ) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String( chars );
+    }
+}
@@ -0,0 +1,200 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.DiffListener;
+
+/**
+ * Reports the differences to a listener on a separate writer thread, so that writing output
+ * does not hold up the comparison. The differences are queued in a bounded queue, which blocks
+ * the comparison if the writer falls behind, and written in batches in the order reported.
+ * {@link #stop()} waits until all differences are written before it stops the listener, while
+ * {@link #abort()} discards the differences that are not written yet.
+ */
+public class AsyncDiffListener
+    implements DiffListener
+{
+    private static final int CAPACITY = 1024;
+
+    private static final int BATCH_SIZE = 128;
+
+    /**
+     * Marks the end of the differences in the queue.
+     */
+    private static final Object END = new Object();
+
+    private final DiffListener listener;
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>( CAPACITY );
+
+    private Thread writer;
+
+    private volatile RuntimeException failure;
+
+    private volatile boolean aborted;
+
+    private boolean stopped;
+
+    public AsyncDiffListener( DiffListener listener )
+    {
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the listener and the writer thread. Calling this again, as a retried comparison does,
+     * has no effect.
+     */
+    public void start()
+    {
+        if ( writer != null )
+        {
+            return;
+        }
+        listener.start();
+        writer = new Thread( new Runnable()
+        {
+            public void run()
+            {
+                write();
+            }
+        }, "clirr-output" );
+        writer.setDaemon( true );
+        writer.start();
+    }
+
+    public void reportDiff( ApiDifference apiDifference )
+    {
+        put( apiDifference );
+    }
+
+    public void stop()
+    {
+        if ( writer == null || stopped )
+        {
+            return;
+        }
+        stopped = true;
+        put( END );
+        try
+        {
+            writer.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while writing the differences", e );
+        }
+        try
+        {
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            listener.stop();
+        }
+    }
+
+    /**
+     * Stops the writer thread without writing the queued differences, and stops the listener so
+     * that its output is closed. Does nothing if the listener was already stopped.
+     */
+    public void abort()
+    {
+        if ( writer == null || stopped )
+        {
+            return;
+        }
+        stopped = true;
+        aborted = true;
+        writer.interrupt();
+        try
+        {
+            writer.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        try
+        {
+            listener.stop();
+        }
+        catch ( RuntimeException e )
+        {
+            // the comparison already failed, that failure is the one reported
+        }
+    }
+
+    private void put( Object event )
+    {
+        try
+        {
+            queue.put( event );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while writing the differences", e );
+        }
+    }
+
+    private void write()
+    {
+        List<Object> batch = new ArrayList<Object>( BATCH_SIZE );
+        while ( true )
+        {
+            try
+            {
+                batch.add( queue.take() );
+            }
+            catch ( InterruptedException e )
+            {
+                return;
+            }
+            queue.drainTo( batch, BATCH_SIZE - 1 );
+            for ( Object event : batch )
+            {
+                if ( event == END || aborted )
+                {
+                    return;
+                }
+                // after a failure keep draining the queue, so that the comparison is not blocked
+                if ( failure == null )
+                {
+                    try
+                    {
+                        listener.reportDiff( (ApiDifference) event );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        failure = e;
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+}
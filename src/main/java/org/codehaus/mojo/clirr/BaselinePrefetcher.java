@@ -0,0 +1,174 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import net.sf.clirr.core.spi.JavaType;
+
+/**
+ * Holds the previous versions parsed in the background by the <code>prefetch</code> goal,
+ * until the check or report of the same module takes them. The previous versions are resolved
+ * on the thread of the mojo, the background threads only read the resolved jars and must not
+ * use any Maven components.
+ *
+ * @see ClirrPrefetchMojo
+ */
+public class BaselinePrefetcher
+{
+    private static final ConcurrentMap<String, Prefetch> PENDING = new ConcurrentHashMap<String, Prefetch>();
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool( new ThreadFactory()
+    {
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, "clirr-prefetch" );
+            thread.setDaemon( true );
+            return thread;
+        }
+    } );
+
+    private static Date sessionStartTime;
+
+    private BaselinePrefetcher()
+    {
+        // static access only
+    }
+
+    /**
+     * Starts parsing <code>jars</code> in the background, unless a prefetch with the same key is
+     * pending already. Pending prefetches of an earlier session are cancelled.
+     *
+     * @param key Identifies the module and the configuration used for resolving.
+     * @param startTime The start time of the current session, may be null.
+     * @param jars The resolved previous version.
+     * @return Whether parsing was started.
+     */
+    static boolean submit( String key, Date startTime, final AbstractClirrMojo.PreviousJars jars )
+    {
+        synchronized ( BaselinePrefetcher.class )
+        {
+            if ( startTime != null && !startTime.equals( sessionStartTime ) )
+            {
+                sessionStartTime = startTime;
+                for ( Iterator<String> i = PENDING.keySet().iterator(); i.hasNext(); )
+                {
+                    cancel( i.next() );
+                }
+            }
+        }
+        FutureTask<JavaType[]> types = new FutureTask<JavaType[]>( new Callable<JavaType[]>()
+        {
+            public JavaType[] call()
+            {
+                return jars.parse();
+            }
+        } );
+        if ( PENDING.putIfAbsent( key, new Prefetch( jars, types ) ) != null )
+        {
+            return false;
+        }
+        EXECUTOR.execute( types );
+        return true;
+    }
+
+    /**
+     * Removes and returns the pending prefetch with the given key.
+     *
+     * @return The prefetch, or null, if nothing was prefetched for <code>key</code>.
+     */
+    static Prefetch take( String key )
+    {
+        return PENDING.remove( key );
+    }
+
+    /**
+     * Removes the pending prefetch with the given key and stops parsing it.
+     */
+    static void cancel( String key )
+    {
+        Prefetch prefetch = PENDING.remove( key );
+        if ( prefetch != null )
+        {
+            prefetch.getTypes().cancel( true );
+        }
+    }
+
+    /**
+     * A previous version resolved by the <code>prefetch</code> goal and parsed in the background.
+     */
+    static final class Prefetch
+    {
+        private final AbstractClirrMojo.PreviousJars jars;
+
+        private final Future<JavaType[]> types;
+
+        Prefetch( AbstractClirrMojo.PreviousJars jars, Future<JavaType[]> types )
+        {
+            this.jars = jars;
+            this.types = types;
+        }
+
+        AbstractClirrMojo.PreviousJars getJars()
+        {
+            return jars;
+        }
+
+        /**
+         * The result of {@link AbstractClirrMojo.PreviousJars#parse()}.
+         */
+        Future<JavaType[]> getTypes()
+        {
+            return types;
+        }
+    }
+
+    /**
+     * A resolved previous version.
+     */
+    public static class Baseline
+    {
+        private final JavaTypeRepository classes;
+
+        private final String version;
+
+        public Baseline( JavaTypeRepository classes, String version )
+        {
+            this.classes = classes;
+            this.version = version;
+        }
+
+        public JavaTypeRepository getClasses()
+        {
+            return classes;
+        }
+
+        public String getVersion()
+        {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.util.ClassPath;
+import org.apache.bcel.util.Repository;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * A BCEL {@link Repository} reading class files through a {@link ClassLoader}, which may
+ * be shared between threads and which asks a parent repository first. Classes parsed by a
+ * parent repository stay with it, so a repository over third-party dependencies can be
+ * shared by all the modules that use those dependencies.
+ *
+ * @see ClasspathCache
+ */
+public class CachingClassRepository
+    implements Repository
+{
+    private static final long serialVersionUID = 3425017340628420427L;
+
+    private final transient ClassLoader classLoader;
+
+    private final Repository parent;
+
+    private final ConcurrentMap<String, JavaClass> loadedClasses = new ConcurrentHashMap<String, JavaClass>();
+
+    private final AtomicLong parsedBytes = new AtomicLong();
+
+    public CachingClassRepository( ClassLoader classLoader, Repository parent )
+    {
+        this.classLoader = classLoader;
+        this.parent = parent;
+    }
+
+    public void storeClass( JavaClass clazz )
+    {
+        loadedClasses.put( clazz.getClassName(), clazz );
+        clazz.setRepository( this );
+    }
+
+    public void removeClass( JavaClass clazz )
+    {
+        loadedClasses.remove( clazz.getClassName() );
+    }
+
+    public JavaClass findClass( String className )
+    {
+        JavaClass clazz = loadedClasses.get( className );
+        if ( clazz == null && parent != null )
+        {
+            clazz = parent.findClass( className );
+        }
+        return clazz;
+    }
+
+    public JavaClass loadClass( String className )
+        throws ClassNotFoundException
+    {
+        if ( className == null || className.length() == 0 )
+        {
+            throw new IllegalArgumentException( "Invalid class name " + className );
+        }
+        className = className.replace( '/', '.' );
+
+        JavaClass clazz = loadedClasses.get( className );
+        if ( clazz != null )
+        {
+            return clazz;
+        }
+
+        if ( parent != null )
+        {
+            try
+            {
+                return parent.loadClass( className );
+            }
+            catch ( ClassNotFoundException e )
+            {
+                // not a third-party class, look for it in our own class loader
+            }
+        }
+
+        InputStream is = classLoader == null ? null
+                        : classLoader.getResourceAsStream( className.replace( '.', '/' ) + ".class" );
+        if ( is == null )
+        {
+            throw new ClassNotFoundException( className + " not found." );
+        }
+        try
+        {
+            byte[] bytes = IOUtil.toByteArray( is );
+            clazz = new ClassParser( new ByteArrayInputStream( bytes ), className ).parse();
+            parsedBytes.addAndGet( bytes.length );
+        }
+        catch ( IOException e )
+        {
+            throw new ClassNotFoundException( e.toString(), e );
+        }
+        finally
+        {
+            IOUtil.close( is );
+        }
+
+        clazz.setRepository( this );
+        JavaClass existing = loadedClasses.putIfAbsent( className, clazz );
+        return existing != null ? existing : clazz;
+    }
+
+    public JavaClass loadClass( Class clazz )
+        throws ClassNotFoundException
+    {
+        return loadClass( clazz.getName() );
+    }
+
+    public void clear()
+    {
+        loadedClasses.clear();
+        parsedBytes.set( 0 );
+    }
+
+    public ClassPath getClassPath()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the number of classes parsed by this repository, not counting its parent.
+     */
+    public int size()
+    {
+        return loadedClasses.size();
+    }
+
+    /**
+     * Returns the total size of the class files parsed by this repository, not counting its
+     * parent, as a measure of the memory its classes take.
+     */
+    public long getParsedBytes()
+    {
+        return parsedBytes.get();
+    }
+}
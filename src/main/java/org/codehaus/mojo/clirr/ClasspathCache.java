@@ -0,0 +1,202 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.bcel.util.Repository;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Keeps the class loaders over dependency jars, and the class headers parsed from them,
+ * for the duration of a Maven session. Modules of a reactor build resolving the same
+ * dependencies then reuse the opened and indexed jars instead of opening them again.
+ * <p>
+ * Entries are keyed by the path, modification time and size of every jar, and the least
+ * recently used entries are dropped once the jars held open, together with the class files
+ * parsed from them, exceed the configured size. The cache of a session is created by the
+ * first module asking for it, with the size that module asks for.
+ *
+ * @see CachingClassRepository
+ */
+public class ClasspathCache
+{
+    private static Date sessionStartTime;
+
+    private static ClasspathCache sessionCache;
+
+    private final long maxBytes;
+
+    private final Map<List<String>, Entry> entries = new LinkedHashMap<List<String>, Entry>( 16, 0.75f, true );
+
+    private final Map<ClassLoader, Entry> entriesByClassLoader = new IdentityHashMap<ClassLoader, Entry>();
+
+    ClasspathCache( long maxBytes )
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache of the given session, replacing the cache of any earlier session.
+     *
+     * @param session the current session, or null, if nothing should be shared.
+     * @param maxBytes the total size of the jar files to keep open and the class files parsed
+     *            from them, if the cache of the session is created. See {@link #getMaxBytes()}.
+     */
+    public static synchronized ClasspathCache getInstance( MavenSession session, long maxBytes )
+    {
+        Date startTime = session == null ? null : session.getStartTime();
+        if ( startTime == null )
+        {
+            return new ClasspathCache( maxBytes );
+        }
+        if ( sessionCache == null || !startTime.equals( sessionStartTime ) )
+        {
+            sessionStartTime = startTime;
+            sessionCache = new ClasspathCache( maxBytes );
+        }
+        return sessionCache;
+    }
+
+    /**
+     * Returns the total size of the jar files kept open and the class files parsed from them,
+     * which may differ from the size a later module asked for.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Returns a class loader over the given jar files, reusing the class loader of an
+     * earlier call with the same, unchanged files.
+     *
+     * @param files The jar files, in class path order.
+     * @return A class loader, or null, if <code>files</code> is empty.
+     * @throws MalformedURLException Failed to convert a file to an URL.
+     */
+    public synchronized ClassLoader getClassLoader( List<File> files )
+        throws MalformedURLException
+    {
+        if ( files.isEmpty() )
+        {
+            return null;
+        }
+
+        List<String> key = new ArrayList<String>( files.size() );
+        long weight = 0;
+        for ( File file : files )
+        {
+            key.add( file.getAbsolutePath() + '|' + file.lastModified() + '|' + file.length() );
+            weight += file.length();
+        }
+
+        Entry entry = entries.get( key );
+        if ( entry == null )
+        {
+            URL[] urls = new URL[files.size()];
+            for ( int i = 0; i < urls.length; i++ )
+            {
+                urls[i] = files.get( i ).toURI().toURL();
+            }
+            entry = new Entry( new URLClassLoader( urls ), weight );
+            if ( weight <= maxBytes )
+            {
+                entries.put( key, entry );
+                entriesByClassLoader.put( entry.classLoader, entry );
+            }
+        }
+        evict();
+        return entry.classLoader;
+    }
+
+    /**
+     * Returns the repository of class headers parsed from the given class loader. Class
+     * loaders handed out by {@link #getClassLoader(List)} share their repository.
+     *
+     * @param classLoader The class loader, may be null.
+     * @return The repository, or null, if <code>classLoader</code> is null.
+     */
+    public synchronized Repository getRepository( ClassLoader classLoader )
+    {
+        if ( classLoader == null )
+        {
+            return null;
+        }
+        Entry entry = entriesByClassLoader.get( classLoader );
+        if ( entry == null )
+        {
+            return new CachingClassRepository( classLoader, null );
+        }
+        return entry.repository;
+    }
+
+    /**
+     * Drops the least recently used entries, until the jars and the class files parsed from
+     * them fit into the configured size. The classes are parsed outside of the cache, so their
+     * size is only checked here.
+     */
+    private void evict()
+    {
+        long cachedBytes = 0;
+        for ( Entry entry : entries.values() )
+        {
+            cachedBytes += entry.getWeight();
+        }
+        for ( Iterator<Entry> i = entries.values().iterator(); i.hasNext() && cachedBytes > maxBytes; )
+        {
+            Entry eldest = i.next();
+            i.remove();
+            entriesByClassLoader.remove( eldest.classLoader );
+            cachedBytes -= eldest.getWeight();
+        }
+    }
+
+    private static class Entry
+    {
+        private final ClassLoader classLoader;
+
+        private final CachingClassRepository repository;
+
+        /**
+         * The size of the jar files.
+         */
+        private final long weight;
+
+        Entry( ClassLoader classLoader, long weight )
+        {
+            this.classLoader = classLoader;
+            this.repository = new CachingClassRepository( classLoader, null );
+            this.weight = weight;
+        }
+
+        long getWeight()
+        {
+            return weight + repository.getParsedBytes();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Severity;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Accept the current differences to the previous version, by writing them to
+ * <code>acceptedDifferencesFile</code>. The check goals then only report differences found
+ * later. Differences accepted before, which are no longer found, are dropped from the file.
+ * Only differences of at least <code>minSeverity</code> are accepted.
+ *
+ * @goal accept
+ * @execute phase="compile"
+ * @threadSafe
+ */
+public class ClirrAcceptMojo
+    extends AbstractClirrMojo
+{
+    @Override
+    protected boolean isTakingPrefetch()
+    {
+        return true;
+    }
+
+    @Override
+    protected void doExecute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( !canGenerate() )
+        {
+            return;
+        }
+        Severity minSeverity = convertSeverity( this.minSeverity );
+
+        ClirrDiffListener listener;
+        try
+        {
+            listener = executeClirr( minSeverity );
+        }
+        catch ( MissingPreviousException e )
+        {
+            getLog().debug( e );
+            getLog().info( "No previous version was found, so there are no differences to accept." );
+            return;
+        }
+
+        List<ApiDifference> accepted = new ArrayList<ApiDifference>();
+        for ( Severity severity : ClirrDiffListener.SEVERITIES )
+        {
+            accepted.addAll( listener.getApiDifferences( severity ) );
+            if ( severity.equals( minSeverity ) )
+            {
+                break;
+            }
+        }
+
+        try
+        {
+            AcceptedDifferencesFilter.write( acceptedDifferencesFile, accepted );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error writing the accepted differences to '"
+                + acceptedDifferencesFile + "': " + e.getMessage(), e );
+        }
+        getLog().info( "Accepted " + accepted.size() + " differences to version " + comparisonVersion + " in "
+            + acceptedDifferencesFile );
+    }
+
+    /**
+     * All current differences are written, including the ones accepted before.
+     */
+    @Override
+    protected boolean isFilteringAcceptedDifferences()
+    {
+        return false;
+    }
+
+    /**
+     * All current differences are kept, whatever <code>retentionLimit</code> is.
+     */
+    @Override
+    protected int getRetentionLimit()
+    {
+        return 0;
+    }
+}
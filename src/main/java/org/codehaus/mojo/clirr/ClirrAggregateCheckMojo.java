@@ -0,0 +1,202 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.clirr.core.Severity;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Check all modules of a multi-module build for compatibility with their previous
+ * versions, in a single execution at the root of the reactor. The modules are checked
+ * concurrently and share the class loaders and parsed classes of common dependencies.
+ * The build fails after all modules were checked, if any of them has differences
+ * which are not allowed. Run it after the modules are compiled, for instance with
+ * <code>mvn package clirr:check-aggregate</code>.
+ *
+ * @goal check-aggregate
+ * @aggregator
+ * @requiresDependencyResolution compile
+ * @threadSafe
+ */
+public class ClirrAggregateCheckMojo
+    extends AbstractClirrCheckMojo
+{
+    /**
+     * @parameter expression="${reactorProjects}"
+     * @required
+     * @readonly
+     */
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * The number of modules to check at the same time. Defaults to the number of processors.
+     *
+     * @parameter expression="${clirr.threads}" default-value="0"
+     */
+    private int threads;
+
+    /**
+     * The name of the XML file written to the build directory of each module. If omitted,
+     * no XML files are written.
+     *
+     * @parameter expression="${clirr.xmlOutputFileName}"
+     */
+    private String xmlOutputFileName;
+
+    /**
+     * The name of the text file written to the build directory of each module. If omitted,
+     * no text files are written.
+     *
+     * @parameter expression="${clirr.textOutputFileName}"
+     */
+    private String textOutputFileName;
+
+    /**
+     * The name of the JSON Lines file written to the build directory of each module. If omitted,
+     * no JSON files are written.
+     *
+     * @parameter expression="${clirr.jsonOutputFileName}"
+     */
+    private String jsonOutputFileName;
+
+    /**
+     * The modules are not reported on from the aggregate check.
+     */
+    @Override
+    protected File getFindingsOutputFile()
+    {
+        return null;
+    }
+
+    @Override
+    protected boolean hasOutputFiles()
+    {
+        return xmlOutputFileName != null || textOutputFileName != null || jsonOutputFileName != null;
+    }
+
+    @Override
+    protected void doExecute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( comparisonArtifacts != null && comparisonArtifacts.length > 0 )
+        {
+            throw new MojoFailureException( "comparisonArtifacts can not be used with the aggregate check, "
+                + "as every module is compared to its own previous version." );
+        }
+        if ( isMultiBaseline() )
+        {
+            throw new MojoFailureException( "comparisonVersions and baselineCount can not be used with the "
+                + "aggregate check, as every module is compared to its own previous version only." );
+        }
+        final Severity minSeverity = convertSeverity( this.minSeverity );
+        warnIfNotFailingFast();
+
+        int threadCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+        Map<MavenProject, Future<ClirrDiffListener>> results =
+            new LinkedHashMap<MavenProject, Future<ClirrDiffListener>>();
+        List<ClirrDiffListener> listeners = new ArrayList<ClirrDiffListener>();
+        try
+        {
+            for ( final MavenProject module : reactorProjects )
+            {
+                if ( "pom".equals( module.getPackaging() ) )
+                {
+                    continue;
+                }
+                results.put( module, executor.submit( new Callable<ClirrDiffListener>()
+                {
+                    public ClirrDiffListener call()
+                        throws Exception
+                    {
+                        return checkModule( module, minSeverity );
+                    }
+                } ) );
+            }
+
+            for ( Map.Entry<MavenProject, Future<ClirrDiffListener>> result : results.entrySet() )
+            {
+                MavenProject module = result.getKey();
+                ClirrDiffListener listener;
+                try
+                {
+                    listener = getResult( result.getValue(), "checking " + module.getArtifactId() );
+                }
+                catch ( MissingPreviousException e )
+                {
+                    getLog().debug( e );
+                    getLog().info( "No previous version of " + module.getArtifactId() + " was found." );
+                    listener = null;
+                }
+                if ( listener != null )
+                {
+                    getLog().info( module.getArtifactId() + ": "
+                                       + listener.getSeverityCount( Severity.ERROR ) + " errors, "
+                                       + listener.getSeverityCount( Severity.WARNING ) + " warnings, "
+                                       + listener.getSeverityCount( Severity.INFO ) + " infos" );
+                    listeners.add( listener );
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        checkResults( listeners, minSeverity );
+    }
+
+    /**
+     * Checks a module against its previous version.
+     *
+     * @return The differences found, or null if the module has no classes.
+     * @throws MissingPreviousException The module has no previous version.
+     */
+    private ClirrDiffListener checkModule( MavenProject module, Severity minSeverity )
+        throws MojoExecutionException, MojoFailureException
+    {
+        File moduleClassesDirectory = new File( module.getBuild().getOutputDirectory() );
+        if ( !moduleClassesDirectory.exists() )
+        {
+            getLog().info( "Not checking " + module.getArtifactId() + " as it has no classes" );
+            return null;
+        }
+        ClirrClassFilter classFilter = new ClirrClassFilter( includes, excludes );
+        BaselinePrefetcher.Baseline baseline = resolveBaseline( module, module.getVersion(), classFilter );
+
+        File buildDirectory = new File( module.getBuild().getDirectory() );
+        File xmlFile = xmlOutputFileName == null ? null : new File( buildDirectory, xmlOutputFileName );
+        File textFile = textOutputFileName == null ? null : new File( buildDirectory, textOutputFileName );
+        File jsonFile = jsonOutputFileName == null ? null : new File( buildDirectory, jsonOutputFileName );
+        buildDirectory.mkdirs();
+        return executeClirr( module, moduleClassesDirectory, baseline.getClasses(), minSeverity, xmlFile, textFile,
+                             jsonFile );
+    }
+}
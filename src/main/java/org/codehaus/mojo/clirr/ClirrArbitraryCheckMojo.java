@@ -17,39 +17,49 @@ package org.codehaus.mojo.clirr;
  */
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.sf.clirr.core.ApiDifference;
-import net.sf.clirr.core.Checker;
-import net.sf.clirr.core.ClassFilter;
-import net.sf.clirr.core.PlainDiffListener;
 import net.sf.clirr.core.Severity;
-import net.sf.clirr.core.XmlDiffListener;
-import net.sf.clirr.core.internal.bcel.BcelTypeArrayBuilder;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
-import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.project.ProjectBuildingException;
-import org.apache.maven.project.artifact.InvalidDependencyVersionException;
 import org.codehaus.plexus.i18n.I18N;
+import org.codehaus.plexus.util.IOUtil;
 
 /**
- * Check for compatibility between two arbitrary artifact sets.
+ * Check for compatibility between two arbitrary artifact sets, or across the versions
+ * of an artifact.
  *
  * @author <a href="mailto:brett@apache.org">Brett Porter</a>
  * @author <a href="mailto:jmcconnell@apache.org">Jesse McConnell</a>
  * @goal check-arbitrary
  * @phase verify
  * @execute phase="compile"
+ * @threadSafe
  */
 public class ClirrArbitraryCheckMojo
     extends AbstractClirrMojo
@@ -75,32 +85,70 @@ public class ClirrArbitraryCheckMojo
 
     /**
      * List of artifacts to serve as a baseline to compare against.
+     * Required, unless <code>matrixArtifact</code> is given.
      * 
      * @parameter
-     * @required
      */
     protected ArtifactSpecification[] oldComparisonArtifacts;
     
     /**
      * List of artifacts to compare to baseline.
+     * Required, unless <code>matrixArtifact</code> is given.
      * 
      * @parameter
-     * @required
      */
     protected ArtifactSpecification[] newComparisonArtifacts;
+
+    /**
+     * An artifact to check across several of its versions, instead of comparing
+     * <code>oldComparisonArtifacts</code> to <code>newComparisonArtifacts</code>. Its version
+     * is a version range, like <code>[1.0,2.0)</code>, selecting the released versions to
+     * check, unless <code>matrixVersions</code> is given.
+     *
+     * @parameter
+     */
+    protected ArtifactSpecification matrixArtifact;
+
+    /**
+     * The versions of <code>matrixArtifact</code> to check, from the oldest one.
+     *
+     * @parameter
+     */
+    protected String[] matrixVersions;
+
+    /**
+     * A version of <code>matrixArtifact</code> to check all other versions against. If omitted,
+     * each version is checked against the version before it.
+     *
+     * @parameter expression="${clirr.matrixBaseVersion}"
+     */
+    protected String matrixBaseVersion;
+
+    /**
+     * The file to write the compatibility matrix of <code>matrixArtifact</code> to.
+     *
+     * @parameter default-value="${project.build.directory}/clirr-matrix.txt"
+     */
+    protected File matrixReportFile;
     
     @Override
     protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {   
+        if ( matrixArtifact != null )
+        {
+            executeMatrix();
+            return;
+        }
+
         if ( oldComparisonArtifacts == null || oldComparisonArtifacts.length == 0 )
         {
-            getLog().info( "Missing required oldComparisonArtifacts" ); 
+            throw new MojoFailureException( "Missing required oldComparisonArtifacts" );
         }
 
         if ( newComparisonArtifacts == null || newComparisonArtifacts.length == 0 )
         {
-            getLog().info( "Missing required newComparisonArtifacts" ); 
+            throw new MojoFailureException( "Missing required newComparisonArtifacts" );
         }
 
         
@@ -117,6 +165,16 @@ public class ClirrArbitraryCheckMojo
             return;
         }
 
+        if ( logResults )
+        {
+            LogDiffListener l = createLogDiffListener();
+            for ( ApiDifference difference : listener.getApiDifferences() )
+            {
+                l.reportDiff( difference );
+            }
+            l.stop();
+        }
+
         Locale locale = Locale.getDefault();
 
         int errorCount = listener.getSeverityCount( Severity.ERROR );
@@ -159,138 +217,272 @@ public class ClirrArbitraryCheckMojo
         getLog().info( i18n.format( "clirr-report", locale, "check.clirr.success", args ) );
     }
 
-    private void log( ClirrDiffListener listener, Severity severity )
+    /**
+     * Checks the versions of <code>matrixArtifact</code> pairwise. Each version is parsed once,
+     * and pairs not sharing a version are compared concurrently.
+     */
+    private void executeMatrix()
+        throws MojoExecutionException, MojoFailureException
     {
-        if ( !logResults )
+        List<String> versions = getMatrixVersions();
+        final List<String[]> pairs = new ArrayList<String[]>();
+        if ( matrixBaseVersion != null )
         {
-            LogDiffListener l = new LogDiffListener( getLog() );
-            for ( Iterator i = listener.getApiDifferences().iterator(); i.hasNext(); )
+            for ( String version : versions )
             {
-                ApiDifference difference = (ApiDifference) i.next();
-                if ( difference.getMaximumSeverity().equals( severity ) )
+                if ( !version.equals( matrixBaseVersion ) )
                 {
-                    l.reportDiff( difference );
+                    pairs.add( new String[]{ matrixBaseVersion, version } );
                 }
             }
         }
-    }
-    
-    protected JavaTypeRepository resolveClasses( ArtifactSpecification[] artifacts, ClassFilter classFilter )
-        throws MojoFailureException, MojoExecutionException
-    {
-        final Set artifactSet;
+        else
+        {
+            for ( int i = 1; i < versions.size(); i++ )
+            {
+                pairs.add( new String[]{ versions.get( i - 1 ), versions.get( i ) } );
+            }
+        }
+        String artifactName = matrixArtifact.getGroupId() + ":" + matrixArtifact.getArtifactId();
+        if ( pairs.isEmpty() )
+        {
+            getLog().info( "Not enough versions of " + artifactName + " to compare: " + versions );
+            return;
+        }
 
-        artifactSet = resolveArtifacts( artifacts );
-        Artifact a = null;
-        for ( Iterator iter = artifactSet.iterator(); iter.hasNext(); )
+        // the artifact resolver is not thread-safe, so the versions are resolved on this thread
+        ClirrClassFilter classFilter = new ClirrClassFilter( includes, excludes );
+        final Map<String, JavaTypeRepository> parsed = new HashMap<String, JavaTypeRepository>();
+        for ( String[] pair : pairs )
         {
-            Artifact artifact = (Artifact) iter.next();
-            if ( a == null )
+            for ( String version : pair )
             {
-                a = artifact;
+                if ( !parsed.containsKey( version ) )
+                {
+                    parsed.put( version, resolveClasses( new ArtifactSpecification[]{ getMatrixArtifact( version ) },
+                                                         classFilter ) );
+                }
             }
-            getLog().debug( "Comparing to " + artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
-                                + artifact.getVersion() + ":" + artifact.getClassifier() + ":" + artifact.getType() );
         }
 
+        // the classes of a version are not thread-safe either, so the comparisons run in rounds,
+        // each comparing every version at most once
+        List<ClirrDiffListener> results =
+            new ArrayList<ClirrDiffListener>( Collections.<ClirrDiffListener> nCopies( pairs.size(), null ) );
+        List<Integer> remaining = new LinkedList<Integer>();
+        for ( int i = 0; i < pairs.size(); i++ )
+        {
+            remaining.add( Integer.valueOf( i ) );
+        }
+        ExecutorService comparer =
+            Executors.newFixedThreadPool( Math.min( pairs.size(), Runtime.getRuntime().availableProcessors() ) );
         try
         {
-            for ( Iterator iter = artifactSet.iterator(); iter.hasNext(); )
+            while ( !remaining.isEmpty() )
             {
-                Artifact artifact = (Artifact) iter.next();
-                resolver.resolve( artifact, project.getRemoteArtifactRepositories(), localRepository );
+                Set<String> comparedVersions = new HashSet<String>();
+                Map<Integer, Future<ClirrDiffListener>> round = new LinkedHashMap<Integer, Future<ClirrDiffListener>>();
+                for ( Iterator<Integer> iter = remaining.iterator(); iter.hasNext(); )
+                {
+                    Integer index = iter.next();
+                    final String[] pair = pairs.get( index.intValue() );
+                    if ( comparedVersions.contains( pair[0] ) || comparedVersions.contains( pair[1] ) )
+                    {
+                        continue;
+                    }
+                    comparedVersions.add( pair[0] );
+                    comparedVersions.add( pair[1] );
+                    iter.remove();
+                    round.put( index, comparer.submit( new Callable<ClirrDiffListener>()
+                    {
+                        public ClirrDiffListener call()
+                            throws Exception
+                        {
+                            return executeClirr( parsed.get( pair[0] ), parsed.get( pair[1] ), Severity.INFO, null,
+                                                 null, null );
+                        }
+                    } ) );
+                }
+
+                for ( Map.Entry<Integer, Future<ClirrDiffListener>> comparison : round.entrySet() )
+                {
+                    String[] pair = pairs.get( comparison.getKey().intValue() );
+                    results.set( comparison.getKey().intValue(),
+                                 getResult( comparison.getValue(), "comparing " + pair[0] + " to " + pair[1] ) );
+                }
             }
+        }
+        finally
+        {
+            comparer.shutdownNow();
+        }
 
-            final List dependencies = getTransitiveDependencies( artifactSet );
+        List<String> lines = formatMatrix( artifactName, pairs, results );
+        for ( String line : lines )
+        {
+            getLog().info( line );
+        }
+        writeMatrix( lines );
 
-            ClassLoader origDepCL = createClassLoader( dependencies, artifactSet );
-            final File[] files = new File[artifactSet.size()];
-            int i = 0;
-            for ( Iterator iter = artifactSet.iterator(); iter.hasNext(); )
+        List<String> incompatible = new ArrayList<String>();
+        for ( int i = 0; i < pairs.size(); i++ )
+        {
+            ClirrDiffListener result = results.get( i );
+            if ( ( failOnError && result.getSeverityCount( Severity.ERROR ) > 0 )
+                || ( failOnWarning && result.getSeverityCount( Severity.WARNING ) > 0 ) )
             {
-                Artifact artifact = (Artifact) iter.next();
-                files[i++] = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
+                incompatible.add( pairs.get( i )[0] + " -> " + pairs.get( i )[1] );
             }
-            return new JavaTypeRepository(BcelTypeArrayBuilder.createClassSet( files, origDepCL, classFilter ), origDepCL);
         }
-        catch ( ProjectBuildingException e )
+        if ( !incompatible.isEmpty() )
         {
-            throw new MojoExecutionException( "Failed to build project for previous artifact: " + e.getMessage(), e );
+            throw new MojoFailureException( "Incompatible versions of " + artifactName + ": " + incompatible );
         }
-        catch ( InvalidDependencyVersionException e )
+    }
+
+    private List<String> getMatrixVersions()
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( matrixVersions != null && matrixVersions.length > 0 )
         {
-            throw new MojoExecutionException( e.getMessage(), e );
+            return Arrays.asList( matrixVersions );
         }
-        catch ( ArtifactResolutionException e )
+        if ( matrixArtifact.getVersion() == null )
         {
-            throw new MissingPreviousException( "Error resolving previous version: " + e.getMessage(), e );
+            throw new MojoFailureException( "Either matrixVersions, or a version range as the version of "
+                + "matrixArtifact, is required." );
         }
-        catch ( ArtifactNotFoundException e )
+        try
         {
-            throw new MojoExecutionException( "Error finding previous version: " + e.getMessage(), e );
+            return getAvailableVersions( matrixArtifact,
+                                         VersionRange.createFromVersionSpec( matrixArtifact.getVersion() ) );
         }
-        catch ( MalformedURLException e )
+        catch ( InvalidVersionSpecificationException e )
         {
-            throw new MojoExecutionException( "Error creating classloader for previous version's classes", e );
+            throw new MojoFailureException( "Invalid version range of matrixArtifact: " + e.getMessage() );
         }
     }
 
-    @Override
-    protected ClirrDiffListener executeClirr( Severity minSeverity )
-        throws MojoExecutionException, MojoFailureException
+    private ArtifactSpecification getMatrixArtifact( String version )
     {
-        
-        ClassFilter classFilter = new ClirrClassFilter( includes, excludes );
-
-        JavaTypeRepository origClasses = resolveClasses( oldComparisonArtifacts, classFilter );
-
-        JavaTypeRepository currentClasses = resolveClasses( newComparisonArtifacts, classFilter );
-        
-        ClirrDiffListener listener = createDiffListener(origClasses, currentClasses);
-        
-        // Create a Clirr checker and execute
-        Checker checker = new Checker();
+        ArtifactSpecification artifact = new ArtifactSpecification();
+        artifact.setGroupId( matrixArtifact.getGroupId() );
+        artifact.setArtifactId( matrixArtifact.getArtifactId() );
+        artifact.setClassifier( matrixArtifact.getClassifier() );
+        artifact.setType( matrixArtifact.getType() );
+        artifact.setVersion( version );
+        return artifact;
+    }
 
-        List listeners = new ArrayList();
+    private static List<String> formatMatrix( String artifactName, List<String[]> pairs,
+                                              List<ClirrDiffListener> results )
+    {
+        int width = "Old version".length();
+        for ( String[] pair : pairs )
+        {
+            width = Math.max( width, Math.max( pair[0].length(), pair[1].length() ) );
+        }
+        String format = "%-" + width + "s  %-" + width + "s  %8s  %8s  %8s";
 
-        listeners.add( listener );
+        List<String> lines = new ArrayList<String>();
+        lines.add( "Compatibility of " + artifactName );
+        lines.add( String.format( format, "Old version", "New version", "Errors", "Warnings", "Infos" ) );
+        for ( int i = 0; i < pairs.size(); i++ )
+        {
+            ClirrDiffListener result = results.get( i );
+            lines.add( String.format( format, pairs.get( i )[0], pairs.get( i )[1],
+                                      Integer.valueOf( result.getSeverityCount( Severity.ERROR ) ),
+                                      Integer.valueOf( result.getSeverityCount( Severity.WARNING ) ),
+                                      Integer.valueOf( result.getSeverityCount( Severity.INFO ) ) ) );
+        }
+        return lines;
+    }
 
-        if ( xmlOutputFile != null )
+    private void writeMatrix( List<String> lines )
+        throws MojoExecutionException
+    {
+        if ( matrixReportFile == null )
         {
-            try
-            {
-                listeners.add( new XmlDiffListener( xmlOutputFile.getAbsolutePath() ) );
-            }
-            catch ( IOException e )
+            return;
+        }
+        matrixReportFile.getParentFile().mkdirs();
+        Writer writer = null;
+        try
+        {
+            writer = new OutputStreamWriter( new FileOutputStream( matrixReportFile ), ApiSnapshot.UTF8 );
+            for ( String line : lines )
             {
-                throw new MojoExecutionException( "Error adding '" + xmlOutputFile + "' for output: " + e.getMessage(),
-                                                  e );
+                writer.write( line );
+                writer.write( System.getProperty( "line.separator" ) );
             }
         }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error writing '" + matrixReportFile + "': " + e.getMessage(), e );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
 
-        if ( textOutputFile != null )
+    private void log( ClirrDiffListener listener, Severity severity )
+    {
+        if ( !logResults )
         {
-            try
+            LogDiffListener l = createLogDiffListener();
+            if ( !l.isEnabled( severity ) )
+            {
+                return;
+            }
+            for ( ApiDifference difference : listener.getApiDifferences( severity ) )
             {
-                listeners.add( new PlainDiffListener( textOutputFile.getAbsolutePath() ) );
+                l.reportDiff( difference );
             }
-            catch ( IOException e )
+            l.stop();
+            if ( listener.isTruncated( severity ) )
             {
-                throw new MojoExecutionException( "Error adding '" + textOutputFile + "' for output: " + e.getMessage(),
-                                                  e );
+                getLog().info( ( listener.getSeverityCount( severity ) - listener.getApiDifferences( severity ).size() )
+                    + " more differences of severity " + severity + " are not listed, as only " + getRetentionLimit()
+                    + " of each message code are kept" );
             }
         }
+    }
+    
+    protected JavaTypeRepository resolveClasses( ArtifactSpecification[] artifacts, ClirrClassFilter classFilter )
+        throws MojoFailureException, MojoExecutionException
+    {
+        final Set artifactSet = resolveArtifacts( artifacts );
+        for ( Iterator iter = artifactSet.iterator(); iter.hasNext(); )
+        {
+            Artifact artifact = (Artifact) iter.next();
+            getLog().debug( "Comparing to " + artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                                + artifact.getVersion() + ":" + artifact.getClassifier() + ":" + artifact.getType() );
+        }
 
-        if ( logResults )
+        try
+        {
+            return resolveArtifactClasses( project, artifactSet, classFilter, true );
+        }
+        catch ( ArtifactNotFoundException e )
         {
-            listeners.add( new LogDiffListener( getLog() ) );
+            throw new MojoExecutionException( "Error finding previous version: " + e.getMessage(), e );
         }
+    }
 
-        checker.addDiffListener( new DelegatingListener( listeners, minSeverity ) );
+    @Override
+    protected ClirrDiffListener executeClirr( Severity minSeverity )
+        throws MojoExecutionException, MojoFailureException
+    {
+        
+        ClirrClassFilter classFilter = new ClirrClassFilter( includes, excludes );
 
-        checker.reportDiffs( origClasses.getRawJavaTypes(), currentClasses.getRawJavaTypes() );
+        JavaTypeRepository origClasses = resolveClasses( oldComparisonArtifacts, classFilter );
 
-        return listener;
+        JavaTypeRepository currentClasses = resolveClasses( newComparisonArtifacts, classFilter );
+        
+        return executeClirr( origClasses, currentClasses, minSeverity, xmlOutputFile, textOutputFile,
+                             jsonOutputFile );
     }
 
 }
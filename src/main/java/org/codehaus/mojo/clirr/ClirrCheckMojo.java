@@ -24,6 +24,7 @@ package org.codehaus.mojo.clirr;
  * @goal check
  * @phase verify
  * @execute phase="compile"
+ * @threadSafe
  */
 public class ClirrCheckMojo
     extends AbstractClirrCheckMojo
@@ -24,6 +24,7 @@ package org.codehaus.mojo.clirr;
  * @goal check-no-fork
  * @phase verify
  * @since 2.3
+ * @threadSafe
  */
 public class ClirrCheckNoForkMojo
     extends AbstractClirrCheckMojo
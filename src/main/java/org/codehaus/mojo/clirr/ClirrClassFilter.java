@@ -61,6 +61,14 @@ public class ClirrClassFilter
     }
 
     public boolean isSelected( JavaClass javaClass )
+    {
+        return isSelected( javaClass.getClassName() );
+    }
+
+    /**
+     * Whether the class of the given fully qualified name is selected.
+     */
+    public boolean isSelected( String className )
     {
         boolean result = false;
         if ( alwaysTrue )
@@ -69,7 +77,7 @@ public class ClirrClassFilter
         }
         else
         {
-            String path = javaClass.getClassName().replace( '.', '/' );
+            String path = className.replace( '.', '/' );
             for ( int i = 0; i < includes.length && !result; i++ )
             {
                 result = SelectorUtils.matchPath( includes[i], path );
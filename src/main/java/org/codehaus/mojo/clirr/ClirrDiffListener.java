@@ -16,10 +16,10 @@ package org.codehaus.mojo.clirr;
  * limitations under the License.
  */
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -36,20 +36,46 @@ public class ClirrDiffListener
     extends DiffListenerAdapter
 {
     /**
-     * The list of differences that occurred.
+     * The severities, from the highest to the lowest.
      */
-    private List<ApiDifference> apiDifferences = new LinkedList<ApiDifference>();
+    static final Severity[] SEVERITIES = new Severity[]{ Severity.ERROR, Severity.WARNING, Severity.INFO };
 
     /**
-     * The number messages for each severity.
+     * The differences that occurred, in the order reported, for each severity. The last
+     * bucket keeps differences without a known severity.
      */
-    private Map<Severity, Integer> counts = new HashMap<Severity, Integer>( 3 );
+    private final ApiDifference[][] buckets = new ApiDifference[SEVERITIES.length + 1][];
+
+    /**
+     * The number of differences in each bucket.
+     */
+    private final int[] counts = new int[SEVERITIES.length + 1];
+
+    /**
+     * The number of differences that occurred for each severity, including the ones not kept.
+     */
+    private final int[] totals = new int[SEVERITIES.length + 1];
+
+    /**
+     * The number of differences that occurred for each severity and message code, if limited.
+     */
+    private final List<Map<Integer, int[]>> codeCounts = new ArrayList<Map<Integer, int[]>>();
+
+    private int retentionLimit;
 
     private ApiDifferenceFilter[] filters;
 
+    private boolean failFast;
+
+    private ClirrDiffListener filteredListener;
+
     public ClirrDiffListener( ApiDifferenceFilter ... filters )
     {
         this.filters = filters;
+        for ( int i = 0; i < buckets.length; i++ )
+        {
+            buckets[i] = new ApiDifference[16];
+        }
     }
 
     @Override
@@ -57,12 +83,59 @@ public class ClirrDiffListener
     {
         if(shouldInclude(apiDifference))
         {
-            incrementCount( apiDifference.getMaximumSeverity(), counts );
-    
-            apiDifferences.add( apiDifference );
+            record( apiDifference );
+            if ( filteredListener != null )
+            {
+                filteredListener.record( apiDifference );
+            }
+            if ( failFast && Severity.ERROR.equals( apiDifference.getMaximumSeverity() ) )
+            {
+                throw new ErrorFoundException( apiDifference );
+            }
         }
     }
+
+    /**
+     * Limits the differences kept to the first ones of each severity and message code. The
+     * others are only counted.
+     *
+     * @param retentionLimit The number of differences kept for each severity and message code,
+     *   0 keeps all.
+     */
+    public void setRetentionLimit( int retentionLimit )
+    {
+        this.retentionLimit = retentionLimit;
+        if ( codeCounts.isEmpty() )
+        {
+            for ( int i = 0; i < buckets.length; i++ )
+            {
+                codeCounts.add( new HashMap<Integer, int[]>() );
+            }
+        }
+    }
+
+    public int getRetentionLimit()
+    {
+        return retentionLimit;
+    }
+
+    /**
+     * Whether to stop the comparison at the first error that passes the filters.
+     */
+    public void setFailFast( boolean failFast )
+    {
+        this.failFast = failFast;
+    }
     
+    /**
+     * Passes the differences which pass the filters of this listener on to another listener,
+     * which records them with its own retention limit, without filtering them again.
+     */
+    public void setFilteredListener( ClirrDiffListener filteredListener )
+    {
+        this.filteredListener = filteredListener;
+    }
+
     protected boolean shouldInclude( ApiDifference apiDifference )
     {
         for(ApiDifferenceFilter filter : filters)
@@ -76,46 +149,156 @@ public class ClirrDiffListener
         return true;
     }
 
-    @Override
-    public void stop()
+    /**
+     * Counts a difference which passed the filters, and keeps it unless the retention limit of
+     * its severity and message code is reached.
+     */
+    protected void record( ApiDifference apiDifference )
     {
-        Collections.sort( apiDifferences, new Comparator<ApiDifference>()
+        int bucket = indexOf( apiDifference.getMaximumSeverity() );
+        totals[bucket]++;
+        if ( retentionLimit > 0 )
         {
-            public int compare( ApiDifference d1, ApiDifference d2 )
+            Map<Integer, int[]> bucketCounts = codeCounts.get( bucket );
+            Integer code = Integer.valueOf( apiDifference.getMessage().getId() );
+            int[] count = bucketCounts.get( code );
+            if ( count == null )
+            {
+                count = new int[1];
+                bucketCounts.put( code, count );
+            }
+            if ( count[0]++ >= retentionLimit )
             {
-                // compare maximum severities - order highest to lowest.
-                return d2.getMaximumSeverity().compareTo( d1.getMaximumSeverity() );
+                return;
             }
-        } );
+        }
+        keep( apiDifference );
+    }
+
+    /**
+     * Keeps a difference within the retention limit.
+     */
+    protected void keep( ApiDifference apiDifference )
+    {
+        int bucket = indexOf( apiDifference.getMaximumSeverity() );
+        int count = counts[bucket];
+        if ( count == buckets[bucket].length )
+        {
+            buckets[bucket] = Arrays.copyOf( buckets[bucket], count * 2 );
+        }
+        buckets[bucket][count] = apiDifference;
+        counts[bucket] = count + 1;
     }
 
-    private void incrementCount( Severity sev, Map<Severity, Integer> counts )
+    static int indexOf( Severity severity )
     {
-        if ( sev != null )
+        for ( int i = 0; i < SEVERITIES.length; i++ )
         {
-            int count = getCount( counts, sev );
-            counts.put( sev, new Integer( count + 1 ) );
+            if ( SEVERITIES[i].equals( severity ) )
+            {
+                return i;
+            }
         }
+        return SEVERITIES.length;
     }
 
-    private int getCount( Map<Severity, Integer> counts, Severity sev )
+    /**
+     * Returns the number of differences that occurred for each message code, if a retention limit is set.
+     */
+    protected Map<Integer, Integer> countMessageCodes()
     {
-        Integer count = counts.get( sev );
-        if ( count == null )
+        Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+        for ( Map<Integer, int[]> bucketCounts : codeCounts )
         {
-            count = new Integer( 0 );
+            for ( Map.Entry<Integer, int[]> count : bucketCounts.entrySet() )
+            {
+                Integer total = result.get( count.getKey() );
+                result.put( count.getKey(), Integer.valueOf( count.getValue()[0]
+                    + ( total == null ? 0 : total.intValue() ) ) );
+            }
         }
-        return count.intValue();
+        return result;
     }
 
+    /**
+     * Returns the differences kept, from the highest severity to the lowest.
+     */
     public List<ApiDifference> getApiDifferences()
     {
-        return Collections.unmodifiableList( apiDifferences );
+        return new AbstractList<ApiDifference>()
+        {
+            @Override
+            public ApiDifference get( int index )
+            {
+                if ( index >= 0 )
+                {
+                    for ( int i = 0; i < buckets.length; i++ )
+                    {
+                        if ( index < counts[i] )
+                        {
+                            return buckets[i][index];
+                        }
+                        index -= counts[i];
+                    }
+                }
+                throw new IndexOutOfBoundsException( String.valueOf( index ) );
+            }
+
+            @Override
+            public int size()
+            {
+                int size = 0;
+                for ( int i = 0; i < counts.length; i++ )
+                {
+                    size += counts[i];
+                }
+                return size;
+            }
+        };
     }
 
+    /**
+     * Returns the differences of a severity kept, in the order reported.
+     */
+    public List<ApiDifference> getApiDifferences( Severity severity )
+    {
+        final int bucket = indexOf( severity );
+        return new AbstractList<ApiDifference>()
+        {
+            @Override
+            public ApiDifference get( int index )
+            {
+                if ( index < 0 || index >= counts[bucket] )
+                {
+                    throw new IndexOutOfBoundsException( String.valueOf( index ) );
+                }
+                return buckets[bucket][index];
+            }
+
+            @Override
+            public int size()
+            {
+                return counts[bucket];
+            }
+        };
+    }
+
+    /**
+     * Returns the number of differences of a severity that occurred, including the ones not kept.
+     */
     public int getSeverityCount( Severity severity )
     {
-        return getCount( counts, severity );
+        int bucket = indexOf( severity );
+        return bucket < SEVERITIES.length ? totals[bucket] : 0;
+    }
+
+    /**
+     * Whether differences of a severity occurred which are not kept.
+     */
+    public boolean isTruncated( Severity severity )
+    {
+        int bucket = indexOf( severity );
+        return counts[bucket] < totals[bucket];
     }
 
 }
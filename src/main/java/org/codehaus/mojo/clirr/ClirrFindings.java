@@ -0,0 +1,414 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.MessageTranslator;
+import net.sf.clirr.core.Severity;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * The differences found by a check, with their messages rendered in one locale. The check goals
+ * write them to a file with {@link FindingsWriter}, together with a fingerprint of the classes
+ * and configuration checked, so that the report can render them without comparing again.
+ */
+public class ClirrFindings
+{
+    static final int MAGIC = 0x434c5246;
+
+    static final int VERSION = 3;
+
+    /**
+     * Marks the end of the findings in a file, which is followed by the numbers of all findings
+     * by severity.
+     */
+    static final int END = -1;
+
+    /**
+     * A difference with its message rendered.
+     */
+    public static class Finding
+    {
+        private final Severity severity;
+
+        private final int messageId;
+
+        private final String className;
+
+        private final String member;
+
+        private final String report;
+
+        public Finding( Severity severity, int messageId, String className, String member, String report )
+        {
+            this.severity = severity;
+            this.messageId = messageId;
+            this.className = className;
+            this.member = member;
+            this.report = report;
+        }
+
+        public Finding( ApiDifference difference, MessageTranslator translator )
+        {
+            this( difference.getMaximumSeverity(), difference.getMessage().getId(), difference.getAffectedClass(),
+                  DifferenceFingerprint.getMember( difference ), difference.getReport( translator ) );
+        }
+
+        public Severity getSeverity()
+        {
+            return severity;
+        }
+
+        public int getMessageId()
+        {
+            return messageId;
+        }
+
+        public String getClassName()
+        {
+            return className;
+        }
+
+        /**
+         * Returns the affected method or field, or null if the class is affected.
+         */
+        public String getMember()
+        {
+            return member;
+        }
+
+        public String getReport()
+        {
+            return report;
+        }
+    }
+
+    private final String fingerprint;
+
+    private final String comparisonVersion;
+
+    private final List<List<Finding>> findings = new ArrayList<List<Finding>>();
+
+    /**
+     * The numbers of differences by severity, if they differ from the differences kept.
+     */
+    private int[] counts;
+
+    public ClirrFindings( String fingerprint, String comparisonVersion )
+    {
+        this.fingerprint = fingerprint;
+        this.comparisonVersion = comparisonVersion;
+        for ( int i = 0; i <= ClirrDiffListener.SEVERITIES.length; i++ )
+        {
+            findings.add( new ArrayList<Finding>() );
+        }
+    }
+
+    /**
+     * Renders the differences kept by a listener.
+     */
+    public static ClirrFindings of( ClirrDiffListener listener, Locale locale, String comparisonVersion )
+    {
+        MessageTranslator translator = new MessageTranslator();
+        translator.setLocale( locale );
+        ClirrFindings result = new ClirrFindings( null, comparisonVersion );
+        for ( ApiDifference difference : listener.getApiDifferences() )
+        {
+            result.add( new Finding( difference, translator ) );
+        }
+        result.counts = new int[ClirrDiffListener.SEVERITIES.length];
+        for ( int i = 0; i < result.counts.length; i++ )
+        {
+            result.counts[i] = listener.getSeverityCount( ClirrDiffListener.SEVERITIES[i] );
+        }
+        return result;
+    }
+
+    public void add( Finding finding )
+    {
+        findings.get( ClirrDiffListener.indexOf( finding.getSeverity() ) ).add( finding );
+    }
+
+    /**
+     * Returns the fingerprint of the classes and configuration checked, or null if unknown.
+     */
+    public String getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    public String getComparisonVersion()
+    {
+        return comparisonVersion;
+    }
+
+    public int getSeverityCount( Severity severity )
+    {
+        int index = ClirrDiffListener.indexOf( severity );
+        if ( counts != null )
+        {
+            return index < counts.length ? counts[index] : 0;
+        }
+        return index < ClirrDiffListener.SEVERITIES.length ? findings.get( index ).size() : 0;
+    }
+
+    /**
+     * Whether findings of a severity were only counted, but not kept.
+     */
+    public boolean isTruncated( Severity severity )
+    {
+        return getFindings( severity ).size() < getSeverityCount( severity );
+    }
+
+    /**
+     * Returns the findings of a severity, in the order found.
+     */
+    public List<Finding> getFindings( Severity severity )
+    {
+        return Collections.unmodifiableList( findings.get( ClirrDiffListener.indexOf( severity ) ) );
+    }
+
+    public boolean isEmpty()
+    {
+        for ( List<Finding> bucket : findings )
+        {
+            if ( !bucket.isEmpty() )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a hash of the findings, which changes whenever their rendering would.
+     */
+    public String getContentDigest()
+    {
+        MessageDigest digest = ApiSnapshotCache.createDigest();
+        StringBuilder buffer = new StringBuilder();
+        buffer.append( comparisonVersion );
+        for ( int i = 0; i < ClirrDiffListener.SEVERITIES.length; i++ )
+        {
+            buffer.append( '|' ).append( getSeverityCount( ClirrDiffListener.SEVERITIES[i] ) );
+        }
+        digest.update( ApiSnapshot.UTF8.encode( buffer.toString() ) );
+        for ( List<Finding> bucket : findings )
+        {
+            for ( Finding finding : bucket )
+            {
+                buffer.setLength( 0 );
+                buffer.append( '\n' ).append( finding.getSeverity() ).append( '|' ).append( finding.getMessageId() );
+                buffer.append( '|' ).append( finding.getClassName() ).append( '|' ).append( finding.getMember() );
+                buffer.append( '|' ).append( finding.getReport() );
+                digest.update( ApiSnapshot.UTF8.encode( buffer.toString() ) );
+            }
+        }
+        return ApiSnapshotCache.toHex( digest.digest() );
+    }
+
+    /**
+     * Splits the findings by the package of the affected class.
+     *
+     * @return The findings of each package, by package name. The default package is named by
+     *   an empty string.
+     */
+    public Map<String, ClirrFindings> byPackage()
+    {
+        Map<String, ClirrFindings> packages = new TreeMap<String, ClirrFindings>();
+        for ( List<Finding> bucket : findings )
+        {
+            for ( Finding finding : bucket )
+            {
+                String className = finding.getClassName();
+                String packageName = className.substring( 0, Math.max( className.lastIndexOf( '.' ), 0 ) );
+                ClirrFindings packageFindings = packages.get( packageName );
+                if ( packageFindings == null )
+                {
+                    packageFindings = new ClirrFindings( fingerprint, comparisonVersion );
+                    packages.put( packageName, packageFindings );
+                }
+                packageFindings.add( finding );
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * Reads the findings written by a {@link FindingsWriter}.
+     *
+     * @throws IOException The file could not be read, or is incomplete.
+     */
+    public static ClirrFindings read( File file )
+        throws IOException
+    {
+        DataInputStream in =
+            new DataInputStream( new BufferedInputStream( new GZIPInputStream( new FileInputStream( file ) ) ) );
+        try
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+            {
+                throw new IOException( file + " is not a findings file of this version" );
+            }
+            ClirrFindings result = new ClirrFindings( readString( in ), readOptionalString( in ) );
+            while ( true )
+            {
+                int severity = in.readByte();
+                if ( severity == END )
+                {
+                    result.counts = new int[ClirrDiffListener.SEVERITIES.length];
+                    for ( int i = 0; i < result.counts.length; i++ )
+                    {
+                        result.counts[i] = in.readInt();
+                    }
+                    return result;
+                }
+                int messageId = in.readInt();
+                String className = readString( in );
+                String member = readOptionalString( in );
+                String report = readString( in );
+                result.add( new Finding( severity < ClirrDiffListener.SEVERITIES.length
+                                ? ClirrDiffListener.SEVERITIES[severity] : null, messageId, className, member,
+                                         report ) );
+            }
+        }
+        catch ( EOFException e )
+        {
+            throw new IOException( file + " is incomplete" );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Writes a string as its length in UTF-8 bytes, followed by those bytes. Unlike
+     * {@link DataOutputStream#writeUTF(String)}, this takes strings of any length.
+     */
+    static void writeString( DataOutputStream out, String value )
+        throws IOException
+    {
+        byte[] bytes = value.getBytes( ApiSnapshot.UTF8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    static void writeOptionalString( DataOutputStream out, String value )
+        throws IOException
+    {
+        out.writeBoolean( value != null );
+        if ( value != null )
+        {
+            writeString( out, value );
+        }
+    }
+
+    private static String readString( DataInputStream in )
+        throws IOException
+    {
+        int length = in.readInt();
+        if ( length < 0 )
+        {
+            throw new IOException( "Invalid string length " + length );
+        }
+        byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return new String( bytes, ApiSnapshot.UTF8 );
+    }
+
+    private static String readOptionalString( DataInputStream in )
+        throws IOException
+    {
+        return in.readBoolean() ? readString( in ) : null;
+    }
+
+    /**
+     * Creates a fingerprint of the classes to check and the configuration of the check.
+     *
+     * @param configuration Everything configured which changes the findings.
+     * @param classesDirectory The classes to check.
+     */
+    public static String createFingerprint( String configuration, File classesDirectory )
+        throws IOException
+    {
+        MessageDigest digest = ApiSnapshotCache.createDigest();
+        digest.update( ApiSnapshot.UTF8.encode( VERSION + "|" + configuration ) );
+        if ( classesDirectory.isDirectory() )
+        {
+            addFiles( digest, classesDirectory, "" );
+        }
+        return ApiSnapshotCache.toHex( digest.digest() );
+    }
+
+    private static void addFiles( MessageDigest digest, File directory, String path )
+        throws IOException
+    {
+        String[] names = directory.list();
+        if ( names == null )
+        {
+            return;
+        }
+        Arrays.sort( names );
+        byte[] buffer = new byte[8192];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            File file = new File( directory, names[i] );
+            String name = path + "/" + names[i];
+            if ( file.isDirectory() )
+            {
+                addFiles( digest, file, name );
+            }
+            else if ( names[i].endsWith( ".class" ) )
+            {
+                digest.update( ApiSnapshot.UTF8.encode( name ) );
+                InputStream in = new FileInputStream( file );
+                try
+                {
+                    int read;
+                    while ( ( read = in.read( buffer ) ) > 0 )
+                    {
+                        digest.update( buffer, 0, read );
+                    }
+                }
+                finally
+                {
+                    IOUtil.close( in );
+                }
+            }
+        }
+    }
+}
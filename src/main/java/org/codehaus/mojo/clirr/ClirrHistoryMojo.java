@@ -0,0 +1,106 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Find the first version in the API history, in which a class or one of its members appeared.
+ * The API history is filled by the <code>check</code> goals, when
+ * <code>apiHistoryDirectory</code> is set.
+ *
+ * @goal history
+ * @threadSafe
+ */
+public class ClirrHistoryMojo
+    extends AbstractClirrMojo
+{
+    /**
+     * The group id of the artifact to look up.
+     *
+     * @parameter expression="${clirr.groupId}" default-value="${project.groupId}"
+     * @required
+     */
+    private String groupId;
+
+    /**
+     * The artifact id of the artifact to look up.
+     *
+     * @parameter expression="${clirr.artifactId}" default-value="${project.artifactId}"
+     * @required
+     */
+    private String artifactId;
+
+    /**
+     * The fully qualified name of the class to look up.
+     *
+     * @parameter expression="${clirr.class}"
+     * @required
+     */
+    private String className;
+
+    /**
+     * The member to look up: a field name, a method name, or a method name with its parameter
+     * types like <code>add(int, java.lang.String)</code>. Constructors are named
+     * <code>&lt;init&gt;</code>. If not set, the class itself is looked up.
+     *
+     * @parameter expression="${clirr.member}"
+     */
+    private String member;
+
+    @Override
+    protected void doExecute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        ApiHistoryStore history = getApiHistoryStore();
+        if ( history == null )
+        {
+            throw new MojoFailureException( "No apiHistoryDirectory is configured." );
+        }
+
+        String subject = member != null ? className + "#" + member : className;
+        List<String> versions = history.getVersions( groupId, artifactId );
+        if ( versions.isEmpty() )
+        {
+            getLog().info( "The API history has no versions of " + groupId + ":" + artifactId );
+            return;
+        }
+
+        try
+        {
+            String version = history.findFirstVersion( groupId, artifactId, className, member );
+            if ( version == null )
+            {
+                getLog().info( subject + " is in none of the versions " + versions + " of " + groupId + ":"
+                    + artifactId );
+            }
+            else
+            {
+                getLog().info( subject + " first appeared in " + groupId + ":" + artifactId + ":" + version );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error reading the API history: " + e.getMessage(), e );
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Resolve the previous version and start parsing it in the background, while the
+ * module compiles. A later <code>check</code> or <code>clirr</code> goal with the
+ * same configuration only waits for the result.
+ *
+ * @goal prefetch
+ * @phase validate
+ * @threadSafe
+ */
+public class ClirrPrefetchMojo
+    extends AbstractClirrMojo
+{
+    @Override
+    protected void doExecute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( "pom".equals( project.getPackaging() ) )
+        {
+            getLog().debug( "Not prefetching the previous version of a pom project" );
+            return;
+        }
+        prefetchPreviousRelease();
+    }
+}
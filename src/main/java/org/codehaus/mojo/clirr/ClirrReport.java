@@ -36,18 +36,29 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.reporting.MavenReport;
 import org.apache.maven.reporting.MavenReportException;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.PathTool;
 import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Generate a report from the Clirr output.
@@ -55,6 +66,7 @@ import java.util.ResourceBundle;
  * @author <a href="mailto:brett@apache.org">Brett Porter</a>
  * @goal clirr
  * @execute phase="compile"
+ * @threadSafe
  */
 public class ClirrReport
     extends AbstractClirrMojo
@@ -102,6 +114,20 @@ public class ClirrReport
      */
     private File xrefLocation;
 
+    /**
+     * Whether to render the details of each package on a page of its own, linked from an index
+     * of the packages on the report page. This keeps the pages small for very large sets of
+     * differences.
+     *
+     * @parameter expression="${clirr.splitByPackage}" default-value="false"
+     */
+    private boolean splitByPackage;
+
+    /**
+     * The resolved skin artifacts, by their coordinates, shared by the executions in this build.
+     */
+    private static final Map<String, File> SKIN_FILES = new HashMap<String, File>();
+
     public String getCategoryName()
     {
         return MavenReport.CATEGORY_PROJECT_REPORTS;
@@ -126,7 +152,27 @@ public class ClirrReport
         throws MojoFailureException, MojoExecutionException
     {
         Skin skin = Skin.getDefaultSkin();
+        String key = getSkinKey( skin );
+        synchronized ( SKIN_FILES )
+        {
+            File file = SKIN_FILES.get( key );
+            if ( file == null || !file.isFile() )
+            {
+                file = resolveSkinArtifactFile( skin );
+                SKIN_FILES.put( key, file );
+            }
+            return file;
+        }
+    }
+
+    private static String getSkinKey( Skin skin )
+    {
+        return skin.getGroupId() + ":" + skin.getArtifactId() + ":" + skin.getVersion();
+    }
 
+    private File resolveSkinArtifactFile( Skin skin )
+        throws MojoFailureException, MojoExecutionException
+    {
         String version = skin.getVersion();
         Artifact artifact;
         try
@@ -157,6 +203,12 @@ public class ClirrReport
         return artifact.getFile();
     }
 
+    @Override
+    protected boolean isTakingPrefetch()
+    {
+        return true;
+    }
+
     protected void doExecute()
         throws MojoExecutionException, MojoFailureException
     {
@@ -165,30 +217,48 @@ public class ClirrReport
             return;
         }
 
-        // TODO: push to a helper? Could still be improved by taking more of the site information from the site plugin
         try
         {
-            DecorationModel model = new DecorationModel();
-            model.setBody( new Body() );
-            Map attributes = new HashMap();
-            attributes.put( "outputEncoding", "UTF-8" );
             Locale locale = Locale.getDefault();
-            SiteRenderingContext siteContext = siteRenderer.createContextForSkin( getSkinArtifactFile(), attributes,
-                                                                                  model, getName( locale ), locale );
+            ClirrFindings findings = findDifferences( locale );
+
+            File reportFile = new File( outputDirectory, getOutputName() + ".html" );
+            File renderKeyFile = new File( project.getBuild().getDirectory(), "clirr-report.key" );
+            String renderKey = findings == null ? null : createRenderKey( findings, locale );
+            File pageDirectory = new File( outputDirectory, getOutputName() );
+            if ( renderKey != null && reportFile.isFile() && renderKeyFile.isFile()
+                && ( !splitByPackage || pageDirectory.isDirectory() )
+                && renderKey.equals( FileUtils.fileRead( renderKeyFile.getAbsolutePath(), "UTF-8" ) ) )
+            {
+                getLog().info( "The report is up to date" );
+                return;
+            }
+            renderKeyFile.delete();
+
+            SiteRenderingContext siteContext = createSiteContext( locale );
 
             RenderingContext context = new RenderingContext( outputDirectory, getOutputName() + ".html" );
 
             SiteRendererSink sink = new SiteRendererSink( context );
-            generate( sink, locale );
+            if ( findings != null )
+            {
+                renderReport( sink, locale, findings );
+            }
 
             outputDirectory.mkdirs();
 
-            Writer writer = new FileWriter( new File( outputDirectory, getOutputName() + ".html" ) );
+            Writer writer = new FileWriter( reportFile );
 
             siteRenderer.generateDocument( writer, sink, siteContext );
 
             siteRenderer.copyResources( siteContext, new File( project.getBasedir(), "src/site/resources" ),
                                         outputDirectory );
+
+            if ( renderKey != null )
+            {
+                renderKeyFile.getParentFile().mkdirs();
+                FileUtils.fileWrite( renderKeyFile.getAbsolutePath(), "UTF-8", renderKey );
+            }
         }
         catch ( RendererException e )
         {
@@ -207,6 +277,36 @@ public class ClirrReport
         }
     }
 
+    /**
+     * Creates a key of everything the rendered report depends on, to skip rendering it again.
+     * The skin is identified by the version it is configured with, so it need not be resolved.
+     */
+    private String createRenderKey( ClirrFindings findings, Locale locale )
+    {
+        String key = findings.getContentDigest() + "|" + locale + "|" + getSkinKey( Skin.getDefaultSkin() ) + "|"
+            + project.getVersion() + "|" + minSeverity + "|" + showSummary + "|" + splitByPackage + "|"
+            + ( linkXRef ? xrefLocation.getAbsolutePath() + "|" + xrefLocation.exists() : "" ) + "|"
+            + outputDirectory.getAbsolutePath();
+        MessageDigest digest = ApiSnapshotCache.createDigest();
+        digest.update( ApiSnapshot.UTF8.encode( key ) );
+        return ApiSnapshotCache.toHex( digest.digest() );
+    }
+
+    /**
+     * Creates the context to render pages with the default skin.
+     */
+    private SiteRenderingContext createSiteContext( Locale locale )
+        throws MojoExecutionException, MojoFailureException, IOException
+    {
+        // Could still be improved by taking more of the site information from the site plugin
+        DecorationModel model = new DecorationModel();
+        model.setBody( new Body() );
+        Map attributes = new HashMap();
+        attributes.put( "outputEncoding", "UTF-8" );
+        return siteRenderer.createContextForSkin( getSkinArtifactFile(), attributes, model, getName( locale ),
+                                                  locale );
+    }
+
     public void generate( Sink sink, Locale locale )
         throws MavenReportException
     {
@@ -222,6 +322,22 @@ public class ClirrReport
 
     private void doReport( Sink sink, Locale locale )
         throws MavenReportException
+    {
+        ClirrFindings findings = findDifferences( locale );
+        if ( findings != null )
+        {
+            renderReport( sink, locale, findings );
+        }
+    }
+
+    /**
+     * Compares to the previous version, or reads the findings of an earlier check, and writes the
+     * configured outputs.
+     *
+     * @return The findings to render, or null if there is no HTML report to render.
+     */
+    private ClirrFindings findDifferences( Locale locale )
+        throws MavenReportException
     {
         Severity minSeverity = convertSeverity( this.minSeverity );
         ResourceBundle bundle = getBundle( locale );
@@ -231,83 +347,245 @@ public class ClirrReport
                 .minSeverity + "'." );
         }
 
-        if ( !htmlReport && xmlOutputFile == null && textOutputFile == null && !logResults )
+        if ( !htmlReport && xmlOutputFile == null && textOutputFile == null && jsonOutputFile == null
+            && !logResults )
         {
             getLog().error( bundle.getString( "report.clirr.error.noreports" ) );
+            return null;
+        }
+
+        ClirrFindings findings = readFindings( locale, minSeverity );
+        if ( findings != null )
+        {
+            return findings;
+        }
+
+        ClirrDiffListener listener;
+        try
+        {
+            listener = executeClirr( minSeverity );
+        }
+        catch ( MissingPreviousException e )
+        {
+            getLog().error( bundle.getString( "report.clirr.error.nopredecessor" ) );
+            return null;
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw new MavenReportException( e.getMessage(), e );
+        }
+        catch ( MojoFailureException e )
+        {
+            throw new MavenReportException( e.getMessage() );
+        }
+        return htmlReport ? ClirrFindings.of( listener, locale, comparisonVersion ) : null;
+    }
+
+    private void renderReport( Sink sink, Locale locale, ClirrFindings findings )
+        throws MavenReportException
+    {
+        Severity minSeverity = convertSeverity( this.minSeverity );
+        ResourceBundle bundle = getBundle( locale );
+        String comparedVersion = findings.getComparisonVersion();
+        String xref = linkXRef ? getXrefPath() : null;
+
+        ClirrReportGenerator generator = createGenerator( sink, bundle, locale, minSeverity, comparedVersion );
+        generator.setXrefLocation( xref );
+
+        if ( splitByPackage )
+        {
+            Map<String, ClirrFindings> packages = findings.byPackage();
+            generator.generatePackageIndex( findings, packages, getOutputName() );
+            generatePackagePages( packages, bundle, locale, minSeverity, comparedVersion,
+                                  xref == null ? null : "../" + xref );
         }
         else
         {
-            ClirrDiffListener listener;
-            try
-            {
-                listener = executeClirr( minSeverity );
-            }
-            catch ( MissingPreviousException e )
-            {
-                getLog().error( bundle.getString( "report.clirr.error.nopredecessor" ) );
-                return;
-            }
-            catch ( MojoExecutionException e )
-            {
-                throw new MavenReportException( e.getMessage(), e );
-            }
-            catch ( MojoFailureException e )
-            {
-                throw new MavenReportException( e.getMessage() );
-            }
+            generator.generateReport( findings );
+        }
+    }
 
-            if ( htmlReport )
-            {
-                ClirrReportGenerator generator = new ClirrReportGenerator( sink, bundle, locale );
+    private ClirrReportGenerator createGenerator( Sink sink, ResourceBundle bundle, Locale locale,
+                                                  Severity minSeverity, String comparedVersion )
+    {
+        ClirrReportGenerator generator = new ClirrReportGenerator( sink, bundle, locale );
 
-                generator.setEnableSeveritySummary( showSummary );
+        generator.setEnableSeveritySummary( showSummary );
 
-                generator.setMinSeverity( minSeverity );
+        generator.setMinSeverity( minSeverity );
 
-                generator.setCurrentVersion( project.getVersion() );
+        generator.setCurrentVersion( project.getVersion() );
 
-                if ( comparisonVersion != null )
-                {
-                    generator.setComparisonVersion( comparisonVersion );
-                }
+        generator.setComparisonVersion( comparedVersion );
+
+        return generator;
+    }
+
+    /**
+     * Returns the location of the Xrefs relative to the report, or null if there are none to link to.
+     */
+    private String getXrefPath()
+    {
+        String relativePath =
+            PathTool.getRelativePath( outputDirectory.getAbsolutePath(), xrefLocation.getAbsolutePath() );
+        if ( StringUtils.isEmpty( relativePath ) )
+        {
+            relativePath = ".";
+        }
+        relativePath = relativePath + "/" + xrefLocation.getName();
+        if ( xrefLocation.exists() )
+        {
+            // XRef was already generated by manual execution of a lifecycle binding
+            return relativePath;
+        }
+
+        // Not yet generated - check if the report is on its way
+        for ( Iterator reports = project.getReportPlugins().iterator(); reports.hasNext(); )
+        {
+            ReportPlugin report = (ReportPlugin) reports.next();
 
-                if ( linkXRef )
+            String artifactId = report.getArtifactId();
+            if ( "maven-jxr-plugin".equals( artifactId ) || "jxr-maven-plugin".equals( artifactId ) )
+            {
+                return relativePath;
+            }
+        }
+
+        getLog().warn( "Unable to locate Source XRef to link to - DISABLED" );
+        return null;
+    }
+
+    /**
+     * Renders a page for each package into a directory next to the report, each on its own sink,
+     * using as many threads as there are processors. The directory is cleared first.
+     */
+    private void generatePackagePages( Map<String, ClirrFindings> packages, final ResourceBundle bundle,
+                                       final Locale locale, final Severity minSeverity,
+                                       final String comparedVersion, final String xref )
+        throws MavenReportException
+    {
+        // pages of packages without differences any more must not be left behind
+        final File pageDirectory = new File( outputDirectory, getOutputName() );
+        try
+        {
+            FileUtils.deleteDirectory( pageDirectory );
+        }
+        catch ( IOException e )
+        {
+            throw new MavenReportException( "Unable to clear '" + pageDirectory + "': " + e.getMessage(), e );
+        }
+        pageDirectory.mkdirs();
+        if ( packages.isEmpty() )
+        {
+            return;
+        }
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( packages.size(), Runtime.getRuntime().availableProcessors() ) );
+        try
+        {
+            final SiteRenderingContext siteContext = createSiteContext( locale );
+
+            List<Future<Object>> pages = new ArrayList<Future<Object>>();
+            for ( final Map.Entry<String, ClirrFindings> entry : packages.entrySet() )
+            {
+                pages.add( executor.submit( new Callable<Object>()
                 {
-                    String relativePath =
-                        PathTool.getRelativePath( outputDirectory.getAbsolutePath(), xrefLocation.getAbsolutePath() );
-                    if ( StringUtils.isEmpty( relativePath ) )
+                    public Object call()
+                        throws Exception
                     {
-                        relativePath = ".";
-                    }
-                    relativePath = relativePath + "/" + xrefLocation.getName();
-                    if ( xrefLocation.exists() )
-                    {
-                        // XRef was already generated by manual execution of a lifecycle binding
-                        generator.setXrefLocation( relativePath );
-                    }
-                    else
-                    {
-                        // Not yet generated - check if the report is on its way
-                        for ( Iterator reports = project.getReportPlugins().iterator(); reports.hasNext(); )
+                        String pageName = ClirrReportGenerator.getPackagePageName( entry.getKey() );
+                        SiteRendererSink sink =
+                            new SiteRendererSink( new RenderingContext( outputDirectory, getOutputName() + "/"
+                                + pageName ) );
+                        ClirrReportGenerator generator =
+                            createGenerator( sink, bundle, locale, minSeverity, comparedVersion );
+                        generator.setXrefLocation( xref );
+                        generator.generatePackageReport( entry.getKey(), entry.getValue() );
+
+                        Writer writer =
+                            new OutputStreamWriter( new FileOutputStream( new File( pageDirectory, pageName ) ),
+                                                    "UTF-8" );
+                        try
                         {
-                            ReportPlugin report = (ReportPlugin) reports.next();
-
-                            String artifactId = report.getArtifactId();
-                            if ( "maven-jxr-plugin".equals( artifactId ) || "jxr-maven-plugin".equals( artifactId ) )
-                            {
-                                generator.setXrefLocation( relativePath );
-                            }
+                            siteRenderer.generateDocument( writer, sink, siteContext );
                         }
+                        finally
+                        {
+                            IOUtil.close( writer );
+                        }
+                        return null;
                     }
+                } ) );
+            }
 
-                    if ( generator.getXrefLocation() == null )
-                    {
-                        getLog().warn( "Unable to locate Source XRef to link to - DISABLED" );
-                    }
-                }
-                generator.generateReport( listener );
+            for ( Future<Object> page : pages )
+            {
+                getResult( page, "rendering the package pages" );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MavenReportException( "Unable to render the package pages: " + e.getMessage(), e );
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw new MavenReportException( e.getMessage(), e );
+        }
+        catch ( MojoFailureException e )
+        {
+            throw new MavenReportException( e.getMessage() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the findings of an earlier check, if they can be rendered instead of comparing again.
+     *
+     * @return The findings, or null if there are none for the current classes and configuration.
+     */
+    private ClirrFindings readFindings( Locale locale, Severity minSeverity )
+    {
+        // the other outputs are only written while comparing
+        if ( !reuseFindings || !htmlReport || xmlOutputFile != null || textOutputFile != null
+            || jsonOutputFile != null || logResults || !findingsFile.isFile() )
+        {
+            return null;
+        }
+        String baselineDigest;
+        try
+        {
+            baselineDigest = resolveBaselineDigest();
+        }
+        catch ( MojoExecutionException e )
+        {
+            // reported by the comparison
+            return null;
+        }
+        catch ( MojoFailureException e )
+        {
+            return null;
+        }
+        String fingerprint = createFindingsFingerprint( locale, minSeverity, baselineDigest );
+        try
+        {
+            ClirrFindings findings = ClirrFindings.read( findingsFile );
+            if ( fingerprint != null && fingerprint.equals( findings.getFingerprint() ) )
+            {
+                getLog().info( "Rendering the findings of the check in " + findingsFile );
+                discardBaseline();
+                return findings;
             }
+            getLog().debug( "The findings in " + findingsFile + " are out of date" );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Not reusing findings: " + e.getMessage() );
         }
+        return null;
     }
 
     public String getDescription( Locale locale )
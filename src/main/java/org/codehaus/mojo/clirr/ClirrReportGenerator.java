@@ -16,14 +16,12 @@ package org.codehaus.mojo.clirr;
  * limitations under the License.
  */
 
-import net.sf.clirr.core.ApiDifference;
-import net.sf.clirr.core.MessageTranslator;
 import net.sf.clirr.core.Severity;
 import org.apache.maven.doxia.sink.Sink;
 
-import java.util.Iterator;
-import java.util.List;
+import java.text.MessageFormat;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
@@ -61,21 +59,159 @@ public class ClirrReportGenerator
     }
 
     public void generateReport( ClirrDiffListener listener )
+    {
+        generateReport( ClirrFindings.of( listener, locale, comparisonVersion ) );
+    }
+
+    /**
+     * Renders findings, which may have been written by an earlier check.
+     */
+    public void generateReport( ClirrFindings findings )
+    {
+        doHeading();
+
+        if ( enableSeveritySummary )
+        {
+            doSeveritySummary( findings );
+        }
+
+        doDetails( findings );
+
+        sink.body_();
+        sink.flush();
+        sink.close();
+    }
+
+    /**
+     * Renders the summary and an index of the packages with findings, linking to a page of
+     * details for each package.
+     *
+     * @param packages The findings by package, see {@link ClirrFindings#byPackage()}.
+     * @param pageDirectory The directory of the package pages, relative to this page.
+     */
+    public void generatePackageIndex( ClirrFindings findings, Map<String, ClirrFindings> packages,
+                                      String pageDirectory )
     {
         doHeading();
 
         if ( enableSeveritySummary )
         {
-            doSeveritySummary( listener );
+            doSeveritySummary( findings );
+        }
+
+        sink.section1();
+        sink.sectionTitle1();
+        sink.text( bundle.getString( "report.clirr.packages" ) );
+        sink.sectionTitle1_();
+
+        if ( packages.isEmpty() )
+        {
+            sink.paragraph();
+            sink.text( bundle.getString( "report.clirr.noresults" ) );
+            sink.paragraph_();
+        }
+        else
+        {
+            doPackageTable( packages, pageDirectory );
         }
 
-        doDetails( listener );
+        sink.section1_();
+
+        sink.body_();
+        sink.flush();
+        sink.close();
+    }
+
+    /**
+     * Renders the details of the findings of one package.
+     */
+    public void generatePackageReport( String packageName, ClirrFindings findings )
+    {
+        doHeading();
+
+        sink.section1();
+        sink.sectionTitle1();
+        sink.text( bundle.getString( "report.clirr.column.package" ) + " " + getPackageLabel( packageName ) );
+        sink.sectionTitle1_();
+        sink.section1_();
+
+        doDetails( findings );
 
         sink.body_();
         sink.flush();
         sink.close();
     }
 
+    /**
+     * Returns the file name of the page of a package.
+     */
+    public static String getPackagePageName( String packageName )
+    {
+        return ( packageName.length() == 0 ? "default" : packageName ) + ".html";
+    }
+
+    private static String getPackageLabel( String packageName )
+    {
+        return packageName.length() == 0 ? "(default)" : packageName;
+    }
+
+    private void doPackageTable( Map<String, ClirrFindings> packages, String pageDirectory )
+    {
+        boolean showWarnings = minSeverity == null || minSeverity.compareTo( Severity.WARNING ) <= 0;
+        boolean showInfos = minSeverity == null || minSeverity.compareTo( Severity.INFO ) <= 0;
+
+        sink.table();
+        sink.tableRow();
+        sink.tableHeaderCell();
+        sink.text( bundle.getString( "report.clirr.column.package" ) );
+        sink.tableHeaderCell_();
+        sink.tableHeaderCell();
+        iconError();
+        sink.tableHeaderCell_();
+        if ( showWarnings )
+        {
+            sink.tableHeaderCell();
+            iconWarning();
+            sink.tableHeaderCell_();
+        }
+        if ( showInfos )
+        {
+            sink.tableHeaderCell();
+            iconInfo();
+            sink.tableHeaderCell_();
+        }
+        sink.tableRow_();
+
+        for ( Map.Entry<String, ClirrFindings> entry : packages.entrySet() )
+        {
+            ClirrFindings findings = entry.getValue();
+            sink.tableRow();
+            sink.tableCell();
+            sink.link( pageDirectory + "/" + getPackagePageName( entry.getKey() ) );
+            sink.text( getPackageLabel( entry.getKey() ) );
+            sink.link_();
+            sink.tableCell_();
+            sink.tableCell();
+            sink.text( String.valueOf( findings.getSeverityCount( Severity.ERROR ) ) );
+            sink.tableCell_();
+            if ( showWarnings )
+            {
+                sink.tableCell();
+                sink.text( String.valueOf( findings.getSeverityCount( Severity.WARNING ) ) );
+                sink.tableCell_();
+            }
+            if ( showInfos )
+            {
+                sink.tableCell();
+                sink.text( String.valueOf( findings.getSeverityCount( Severity.INFO ) ) );
+                sink.tableCell_();
+            }
+            sink.tableRow_();
+        }
+
+        sink.table_();
+    }
+
     private void doHeading()
     {
         sink.head();
@@ -151,7 +287,7 @@ public class ClirrReportGenerator
         sink.figure_();
     }
 
-    private void doSeveritySummary( ClirrDiffListener listener )
+    private void doSeveritySummary( ClirrFindings findings )
     {
         sink.section1();
         sink.sectionTitle1();
@@ -179,7 +315,7 @@ public class ClirrReportGenerator
         sink.text( bundle.getString( "report.clirr.level.error" ) );
         sink.tableCell_();
         sink.tableCell();
-        sink.text( String.valueOf( listener.getSeverityCount( Severity.ERROR ) ) );
+        sink.text( String.valueOf( findings.getSeverityCount( Severity.ERROR ) ) );
         sink.tableCell_();
         sink.tableRow_();
 
@@ -192,7 +328,7 @@ public class ClirrReportGenerator
             sink.text( bundle.getString( "report.clirr.level.warning" ) );
             sink.tableCell_();
             sink.tableCell();
-            sink.text( String.valueOf( listener.getSeverityCount( Severity.WARNING ) ) );
+            sink.text( String.valueOf( findings.getSeverityCount( Severity.WARNING ) ) );
             sink.tableCell_();
             sink.tableRow_();
         }
@@ -206,7 +342,7 @@ public class ClirrReportGenerator
             sink.text( bundle.getString( "report.clirr.level.info" ) );
             sink.tableCell_();
             sink.tableCell();
-            sink.text( String.valueOf( listener.getSeverityCount( Severity.INFO ) ) );
+            sink.text( String.valueOf( findings.getSeverityCount( Severity.INFO ) ) );
             sink.tableCell_();
             sink.tableRow_();
         }
@@ -225,18 +361,17 @@ public class ClirrReportGenerator
         sink.section1_();
     }
 
-    private void doDetails( ClirrDiffListener listener )
+    private void doDetails( ClirrFindings findings )
     {
         sink.section1();
         sink.sectionTitle1();
         sink.text( bundle.getString( "report.clirr.details" ) );
         sink.sectionTitle1_();
 
-        List differences = listener.getApiDifferences();
-
-        if ( !differences.isEmpty() )
+        if ( !findings.isEmpty() )
         {
-            doTable( differences );
+            doTable( findings );
+            doTruncationNote( findings );
         }
         else
         {
@@ -248,7 +383,33 @@ public class ClirrReportGenerator
         sink.section1_();
     }
 
-    private void doTable( List differences )
+    /**
+     * Says how many of the differences are listed, if not all were kept.
+     */
+    private void doTruncationNote( ClirrFindings findings )
+    {
+        int listed = 0;
+        int total = 0;
+        for ( int severity = 0; severity < ClirrDiffListener.SEVERITIES.length; severity++ )
+        {
+            Severity maximumSeverity = ClirrDiffListener.SEVERITIES[severity];
+            if ( minSeverity != null && minSeverity.compareTo( maximumSeverity ) > 0 )
+            {
+                break;
+            }
+            listed += findings.getFindings( maximumSeverity ).size();
+            total += findings.getSeverityCount( maximumSeverity );
+        }
+        if ( listed < total )
+        {
+            sink.paragraph();
+            sink.text( MessageFormat.format( bundle.getString( "report.clirr.truncated" ),
+                                             new Object[]{ String.valueOf( listed ), String.valueOf( total ) } ) );
+            sink.paragraph_();
+        }
+    }
+
+    private void doTable( ClirrFindings findings )
     {
         sink.table();
         sink.tableRow();
@@ -266,17 +427,16 @@ public class ClirrReportGenerator
         sink.tableHeaderCell_();
         sink.tableRow_();
 
-        MessageTranslator translator = new MessageTranslator();
-        translator.setLocale( locale );
-
-        for ( Iterator events = differences.iterator(); events.hasNext(); )
+        for ( int severity = 0; severity < ClirrDiffListener.SEVERITIES.length; severity++ )
         {
-            ApiDifference difference = (ApiDifference) events.next();
-
             // TODO: differentiate source and binary? The only difference seems to be MSG_CONSTANT_REMOVED at this point
-            Severity maximumSeverity = difference.getMaximumSeverity();
+            Severity maximumSeverity = ClirrDiffListener.SEVERITIES[severity];
+            if ( minSeverity != null && minSeverity.compareTo( maximumSeverity ) > 0 )
+            {
+                break;
+            }
 
-            if ( minSeverity == null || minSeverity.compareTo( maximumSeverity ) <= 0 )
+            for ( ClirrFindings.Finding finding : findings.getFindings( maximumSeverity ) )
             {
                 sink.tableRow();
 
@@ -285,13 +445,13 @@ public class ClirrReportGenerator
                 sink.tableCell_();
 
                 sink.tableCell();
-                sink.text( difference.getReport( translator ) );
+                sink.text( finding.getReport() );
                 sink.tableCell_();
 
                 sink.tableCell();
                 if ( xrefLocation != null )
                 {
-                    String pathToClass = difference.getAffectedClass().replace( '.', '/' );
+                    String pathToClass = finding.getClassName().replace( '.', '/' );
                     // MCLIRR-18 Special handling of links to inner classes:
                     // We link to the page for the containing class
                     final int innerClassIndex = pathToClass.lastIndexOf( '$' );
@@ -301,7 +461,7 @@ public class ClirrReportGenerator
                     }
                     sink.link( xrefLocation + "/" + pathToClass + ".html" );
                 }
-                sink.text( difference.getAffectedClass() );
+                sink.text( finding.getClassName() );
                 if ( xrefLocation != null )
                 {
                     sink.link_();
@@ -309,8 +469,7 @@ public class ClirrReportGenerator
                 sink.tableCell_();
 
                 sink.tableCell();
-                sink.text( difference.getAffectedMethod() != null ? difference.getAffectedMethod()
-                    : difference.getAffectedField() );
+                sink.text( finding.getMember() );
                 sink.tableCell_();
 
                 sink.tableRow_();
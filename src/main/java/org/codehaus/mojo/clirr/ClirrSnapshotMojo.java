@@ -0,0 +1,97 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import net.sf.clirr.core.spi.JavaType;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProjectHelper;
+
+/**
+ * Write a snapshot of the API of this project and attach it to the build, so that later
+ * versions are checked against the snapshot instead of the jar and its dependencies.
+ *
+ * @goal snapshot
+ * @phase package
+ * @requiresDependencyResolution compile
+ * @threadSafe
+ */
+public class ClirrSnapshotMojo
+    extends AbstractClirrMojo
+{
+    /**
+     * The snapshot file to write.
+     *
+     * @parameter default-value="${project.build.directory}/${project.build.finalName}-api-snapshot.clirr"
+     * @required
+     */
+    private File snapshotFile;
+
+    /**
+     * Whether to attach the snapshot to the project, to be installed and deployed with it.
+     *
+     * @parameter expression="${clirr.attachSnapshot}" default-value="true"
+     */
+    private boolean attachSnapshot;
+
+    /**
+     * @component
+     */
+    private MavenProjectHelper projectHelper;
+
+    @Override
+    protected void doExecute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        if ( !classesDirectory.exists() )
+        {
+            getLog().info( "Not writing an API snapshot as there are no classes generated by the project" );
+            return;
+        }
+
+        try
+        {
+            ClassLoader depCL = createClassLoader( project.getArtifacts(), null );
+            JavaType[] classes = createClassSet( classesDirectory, depCL, getClasspathCache().getRepository( depCL ),
+                                                 new ClirrClassFilter( null, null ) );
+            ClassLoader annotationCL = new URLClassLoader( new URL[]{ classesDirectory.toURI().toURL() }, depCL );
+            ApiSnapshot.write( classes, new JavaTypeRepository( classes, annotationCL ), snapshotFile );
+            getLog().info( "Wrote API snapshot of " + classes.length + " classes to " + snapshotFile );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Error creating classloader for current classes", e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error writing API snapshot to '" + snapshotFile + "': "
+                + e.getMessage(), e );
+        }
+
+        if ( attachSnapshot )
+        {
+            projectHelper.attachArtifact( project, ApiSnapshot.TYPE, ApiSnapshot.CLASSIFIER, snapshotFile );
+        }
+    }
+}
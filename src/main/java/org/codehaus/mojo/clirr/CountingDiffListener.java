@@ -0,0 +1,49 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the differences by severity and message code, keeping only the first few differences
+ * of each severity and message code. This keeps the memory used flat when only the counts are
+ * needed.
+ */
+public class CountingDiffListener
+    extends ClirrDiffListener
+{
+    /**
+     * The number of differences kept for each message code.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 10;
+
+    public CountingDiffListener( int sampleSize, ApiDifferenceFilter... filters )
+    {
+        super( filters );
+        setRetentionLimit( sampleSize );
+    }
+
+    /**
+     * Returns the number of differences for each message code.
+     */
+    public Map<Integer, Integer> getMessageCodeCounts()
+    {
+        return Collections.unmodifiableMap( new TreeMap<Integer, Integer>( countMessageCodes() ) );
+    }
+}
@@ -0,0 +1,64 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.security.MessageDigest;
+
+import net.sf.clirr.core.ApiDifference;
+
+/**
+ * Creates fingerprints identifying differences across builds. A fingerprint depends on the
+ * message code and the affected class and member only, so it does not change with the locale,
+ * the order of the differences or the versions compared.
+ */
+public final class DifferenceFingerprint
+{
+    private DifferenceFingerprint()
+    {
+        // static access only
+    }
+
+    /**
+     * Returns the fingerprint of a difference, as a SHA-1 digest in hex.
+     */
+    public static String of( ApiDifference difference )
+    {
+        return of( difference.getMessage().getId(), difference.getAffectedClass(), getMember( difference ) );
+    }
+
+    /**
+     * Returns the fingerprint of a difference given by its parts.
+     *
+     * @param member The affected method or field, may be null.
+     */
+    public static String of( int messageCode, String className, String member )
+    {
+        MessageDigest digest = ApiSnapshotCache.createDigest();
+        digest.update( ApiSnapshot.UTF8.encode( messageCode + "\n" + className + "\n"
+            + ( member != null ? member : "" ) ) );
+        return ApiSnapshotCache.toHex( digest.digest() );
+    }
+
+    /**
+     * Returns the affected method or field of a difference, or null if it affects the class.
+     */
+    public static String getMember( ApiDifference difference )
+    {
+        return difference.getAffectedMethod() != null ? difference.getAffectedMethod()
+                        : difference.getAffectedField();
+    }
+}
@@ -0,0 +1,42 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import net.sf.clirr.core.ApiDifference;
+
+/**
+ * This exception is thrown by a fail-fast listener at the first error, to stop comparing
+ * the remaining classes.
+ */
+class ErrorFoundException
+    extends RuntimeException
+{
+    private static final long serialVersionUID = 3902865210547839561L;
+
+    private final transient ApiDifference difference;
+
+    ErrorFoundException( ApiDifference difference )
+    {
+        super( difference.getAffectedClass() );
+        this.difference = difference;
+    }
+
+    ApiDifference getDifference()
+    {
+        return difference;
+    }
+}
@@ -1,6 +1,6 @@
 package org.codehaus.mojo.clirr;
 
-import java.lang.annotation.Annotation;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -10,18 +10,17 @@ import net.sf.clirr.core.ApiDifference;
 public class ExternallyInvokedFilter implements ApiDifferenceFilter
 {
 
-    public static MessageCodeFilter EXTERNALLY_INVOKED_FILTER = new MessageCodeFilter(new HashSet<Integer>(), new HashSet<Integer>(){{
-        // Ignore these errors if interface had an adaptor
-        add(MessageCodeFilter.Codes.METHOD_ADDED_TO_INTERFACE);
-    }});
+    // Ignore these errors if interface had an adaptor
+    public static final MessageCodeFilter EXTERNALLY_INVOKED_FILTER =
+        MessageCodeFilter.excluding( MessageCodeFilter.Codes.METHOD_ADDED_TO_INTERFACE );
     
-    private JavaTypeRepository originalClasses;
-    private Set<String> annotations;
-    private MessageCodeFilter externallyInvokedFilter = EXTERNALLY_INVOKED_FILTER;
+    private final JavaTypeRepository originalClasses;
+    private final Set<String> annotations;
+    private final MessageCodeFilter externallyInvokedFilter = EXTERNALLY_INVOKED_FILTER;
 
     public ExternallyInvokedFilter( Set<String> externallyInvokedAnnotations, JavaTypeRepository origClasses )
     {
-        this.annotations = externallyInvokedAnnotations;
+        this.annotations = Collections.unmodifiableSet( new HashSet<String>( externallyInvokedAnnotations ) );
         this.originalClasses = origClasses;
     }
 
@@ -30,10 +29,9 @@ public class ExternallyInvokedFilter implements ApiDifferenceFilter
         try {
             if(apiDiff.getAffectedMethod() != null)
             {
-                Class<?> clazz = originalClasses.get( apiDiff.getAffectedClass());
-                for(Annotation annotation : clazz.getAnnotations())
+                for(String annotation : originalClasses.getClassAnnotations( apiDiff.getAffectedClass() ))
                 {
-                    if(annotations.contains( annotation.annotationType().getName() ))
+                    if(annotations.contains( annotation ))
                     {
                         return externallyInvokedFilter.shouldInclude( apiDiff );
                     }
@@ -0,0 +1,152 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.MessageTranslator;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Writes the differences within the retention limit to a findings file, as they are reported,
+ * followed by the numbers of all differences by severity. The differences are not filtered
+ * again, the writer is fed by the listener of the check, see
+ * {@link ClirrDiffListener#setFilteredListener(ClirrDiffListener)}. The file is written under a
+ * temporary name and only renamed into place when the check is complete, so an interrupted
+ * check leaves no findings behind.
+ *
+ * @see ClirrFindings
+ */
+public class FindingsWriter
+    extends ClirrDiffListener
+{
+    private final File file;
+
+    private final File temporary;
+
+    private final DataOutputStream out;
+
+    private final MessageTranslator translator = new MessageTranslator();
+
+    /**
+     * Whether writing failed. The findings only save work for the report, so the check goes on.
+     */
+    private boolean abandoned;
+
+    /**
+     * @param fingerprint The fingerprint of the classes and configuration checked.
+     * @param comparisonVersion The version compared against, may be null.
+     * @param locale The locale to render the messages in.
+     */
+    public FindingsWriter( File file, String fingerprint, String comparisonVersion, Locale locale )
+        throws IOException
+    {
+        this.file = file;
+        this.translator.setLocale( locale );
+        file.getParentFile().mkdirs();
+        file.delete();
+        temporary = new File( file.getParentFile(), file.getName() + ".tmp" );
+        out = new DataOutputStream( new BufferedOutputStream( new GZIPOutputStream( new FileOutputStream( temporary ) ),
+                                                              64 * 1024 ) );
+        try
+        {
+            out.writeInt( ClirrFindings.MAGIC );
+            out.writeInt( ClirrFindings.VERSION );
+            ClirrFindings.writeString( out, fingerprint );
+            ClirrFindings.writeOptionalString( out, comparisonVersion );
+        }
+        catch ( IOException e )
+        {
+            IOUtil.close( out );
+            throw e;
+        }
+    }
+
+    @Override
+    protected void keep( ApiDifference apiDifference )
+    {
+        if ( abandoned )
+        {
+            return;
+        }
+        try
+        {
+            out.writeByte( indexOf( apiDifference.getMaximumSeverity() ) );
+            out.writeInt( apiDifference.getMessage().getId() );
+            ClirrFindings.writeString( out, apiDifference.getAffectedClass() );
+            ClirrFindings.writeOptionalString( out, DifferenceFingerprint.getMember( apiDifference ) );
+            ClirrFindings.writeString( out, apiDifference.getReport( translator ) );
+        }
+        catch ( IOException e )
+        {
+            abandon();
+        }
+    }
+
+    @Override
+    public void stop()
+    {
+        if ( abandoned )
+        {
+            return;
+        }
+        try
+        {
+            out.writeByte( ClirrFindings.END );
+            for ( int i = 0; i < SEVERITIES.length; i++ )
+            {
+                out.writeInt( getSeverityCount( SEVERITIES[i] ) );
+            }
+            out.close();
+        }
+        catch ( IOException e )
+        {
+            abandon();
+            return;
+        }
+        if ( !temporary.renameTo( file ) )
+        {
+            temporary.delete();
+        }
+    }
+
+    /**
+     * Drops the findings, as the check did not complete.
+     */
+    public void abort()
+    {
+        if ( !abandoned )
+        {
+            abandon();
+        }
+    }
+
+    private void abandon()
+    {
+        abandoned = true;
+        IOUtil.close( out );
+        temporary.delete();
+    }
+}
@@ -0,0 +1,229 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Matches strings against many glob patterns at once, in a single pass over the string. In the
+ * patterns, <code>*</code> matches any characters and <code>?</code> any single character. The
+ * patterns are combined into one automaton, whose deterministic states are built as they are
+ * first reached, and then shared by all threads.
+ */
+final class GlobAutomaton
+{
+    /**
+     * The number of deterministic states kept. Beyond it, transitions are computed on every step.
+     */
+    private static final int MAX_STATES = 4096;
+
+    private final char[][] patterns;
+
+    /**
+     * The pattern and the index in it of each position of the automaton.
+     */
+    private final int[] patternOf;
+
+    private final int[] indexOf;
+
+    private final ConcurrentMap<Positions, State> states = new ConcurrentHashMap<Positions, State>();
+
+    private final State start;
+
+    GlobAutomaton( List<String> globs )
+    {
+        patterns = new char[globs.size()][];
+        int count = 0;
+        for ( int i = 0; i < patterns.length; i++ )
+        {
+            patterns[i] = globs.get( i ).toCharArray();
+            count += patterns[i].length + 1;
+        }
+        patternOf = new int[count];
+        indexOf = new int[count];
+        int[] initial = new int[patterns.length];
+        int position = 0;
+        for ( int i = 0; i < patterns.length; i++ )
+        {
+            initial[i] = position;
+            for ( int j = 0; j <= patterns[i].length; j++ )
+            {
+                patternOf[position] = i;
+                indexOf[position] = j;
+                position++;
+            }
+        }
+        start = getState( closure( initial, initial.length ) );
+    }
+
+    /**
+     * Whether the string from an index on matches one of the patterns.
+     */
+    boolean matches( String string, int from )
+    {
+        State state = start;
+        for ( int i = from; i < string.length(); i++ )
+        {
+            state = step( state, string.charAt( i ) );
+            if ( state.positions.length == 0 )
+            {
+                return false;
+            }
+        }
+        return state.accepting;
+    }
+
+    private State step( State state, char c )
+    {
+        Character key = Character.valueOf( c );
+        State next = state.next.get( key );
+        if ( next == null )
+        {
+            int[] targets = new int[state.positions.length * 2];
+            int count = 0;
+            for ( int position : state.positions )
+            {
+                char[] pattern = patterns[patternOf[position]];
+                int index = indexOf[position];
+                if ( index == pattern.length )
+                {
+                    continue;
+                }
+                if ( pattern[index] == '*' )
+                {
+                    targets[count++] = position;
+                }
+                else if ( pattern[index] == '?' || pattern[index] == c )
+                {
+                    targets[count++] = position + 1;
+                }
+            }
+            next = getState( closure( targets, count ) );
+            if ( states.size() < MAX_STATES )
+            {
+                state.next.putIfAbsent( key, next );
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Adds the positions reached without reading a character, that is past any <code>*</code>.
+     *
+     * @param positions Positions in ascending order.
+     */
+    private Positions closure( int[] positions, int count )
+    {
+        int[] result = new int[count + 8];
+        int size = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            int position = positions[i];
+            // a position added before was added with the positions following it
+            if ( size > 0 && position <= result[size - 1] )
+            {
+                continue;
+            }
+            char[] pattern = patterns[patternOf[position]];
+            int index = indexOf[position];
+            while ( true )
+            {
+                if ( size == result.length )
+                {
+                    result = Arrays.copyOf( result, size * 2 );
+                }
+                result[size++] = position;
+                if ( index == pattern.length || pattern[index] != '*' )
+                {
+                    break;
+                }
+                position++;
+                index++;
+            }
+        }
+        return new Positions( size == result.length ? result : Arrays.copyOf( result, size ) );
+    }
+
+    private State getState( Positions positions )
+    {
+        State state = states.get( positions );
+        if ( state == null )
+        {
+            boolean accepting = false;
+            for ( int position : positions.positions )
+            {
+                accepting |= indexOf[position] == patterns[patternOf[position]].length;
+            }
+            state = new State( positions.positions, accepting );
+            if ( states.size() < MAX_STATES )
+            {
+                State existing = states.putIfAbsent( positions, state );
+                if ( existing != null )
+                {
+                    state = existing;
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * A set of positions, identifying a deterministic state.
+     */
+    private static final class Positions
+    {
+        private final int[] positions;
+
+        private final int hash;
+
+        Positions( int[] positions )
+        {
+            this.positions = positions;
+            this.hash = Arrays.hashCode( positions );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( Object other )
+        {
+            return other instanceof Positions && Arrays.equals( positions, ( (Positions) other ).positions );
+        }
+    }
+
+    private static final class State
+    {
+        private final int[] positions;
+
+        private final boolean accepting;
+
+        private final ConcurrentMap<Character, State> next = new ConcurrentHashMap<Character, State>();
+
+        State( int[] positions, boolean accepting )
+        {
+            this.positions = positions;
+            this.accepting = accepting;
+        }
+    }
+}
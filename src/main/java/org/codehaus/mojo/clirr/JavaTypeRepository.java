@@ -1,57 +1,67 @@
 package org.codehaus.mojo.clirr;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import net.sf.clirr.core.spi.JavaType;
 
 public class JavaTypeRepository
 {
     
-    private Map<String, Integer> modifierMap = new HashMap<String,Integer>()
-    {{
-        put( "abstract",     Modifier.ABSTRACT );
-        put( "final",        Modifier.FINAL );
-        put( "interface",    Modifier.INTERFACE );
-        put( "native",       Modifier.NATIVE );
-        put( "private",      Modifier.PRIVATE );
-        put( "protected",    Modifier.PROTECTED );
-        put( "public",       Modifier.PUBLIC );
-        put( "static",       Modifier.STATIC );
-        put( "strict",       Modifier.STRICT );
-        put( "synchronized", Modifier.SYNCHRONIZED );
-        put( "transient",    Modifier.TRANSIENT );
-        put( "volatile",     Modifier.VOLATILE );
-    }};
-    
-    private Map<String, Class<?>> primitivesMap = new HashMap<String,Class<?>>()
-    {{
-        put( "void",    void.class );
-        put( "int",     int.class );
-        put( "long",    long.class );
-        put( "float",   float.class );
-        put( "double",  double.class );
-        put( "boolean", boolean.class );
-        put( "byte",    byte.class );
-        put( "char",    char.class );
+    private static final Map<String, Integer> MODIFIERS;
+
+    private static final Map<String, Class<?>> PRIMITIVES;
+
+    static
+    {
+        Map<String, Integer> modifiers = new HashMap<String, Integer>();
+        modifiers.put( "abstract",     Modifier.ABSTRACT );
+        modifiers.put( "final",        Modifier.FINAL );
+        modifiers.put( "interface",    Modifier.INTERFACE );
+        modifiers.put( "native",       Modifier.NATIVE );
+        modifiers.put( "private",      Modifier.PRIVATE );
+        modifiers.put( "protected",    Modifier.PROTECTED );
+        modifiers.put( "public",       Modifier.PUBLIC );
+        modifiers.put( "static",       Modifier.STATIC );
+        modifiers.put( "strict",       Modifier.STRICT );
+        modifiers.put( "synchronized", Modifier.SYNCHRONIZED );
+        modifiers.put( "transient",    Modifier.TRANSIENT );
+        modifiers.put( "volatile",     Modifier.VOLATILE );
+        MODIFIERS = Collections.unmodifiableMap( modifiers );
+
+        Map<String, Class<?>> primitives = new HashMap<String, Class<?>>();
+        primitives.put( "void",    void.class );
+        primitives.put( "int",     int.class );
+        primitives.put( "long",    long.class );
+        primitives.put( "float",   float.class );
+        primitives.put( "double",  double.class );
+        primitives.put( "boolean", boolean.class );
+        primitives.put( "byte",    byte.class );
+        primitives.put( "char",    char.class );
         // Primitive arrays
-        put( "int[]",     int[].class );
-        put( "long[]",    long[].class );
-        put( "float[]",   float[].class );
-        put( "double[]",  double[].class );
-        put( "boolean[]", boolean[].class );
-        put( "byte[]",    byte[].class );
-        put( "char[]",    char[].class );
-    }};
-
-    private JavaType[] types;
-    private ClassLoader classLoader;
+        primitives.put( "int[]",     int[].class );
+        primitives.put( "long[]",    long[].class );
+        primitives.put( "float[]",   float[].class );
+        primitives.put( "double[]",  double[].class );
+        primitives.put( "boolean[]", boolean[].class );
+        primitives.put( "byte[]",    byte[].class );
+        primitives.put( "char[]",    char[].class );
+        PRIMITIVES = Collections.unmodifiableMap( primitives );
+    }
+
+    private final JavaType[] types;
+    private final ClassLoader classLoader;
 
     public JavaTypeRepository( JavaType[] javaTypes, ClassLoader classLoader )
     {
@@ -59,6 +69,11 @@ public class JavaTypeRepository
         this.classLoader = classLoader;
     }
 
+    public ClassLoader getClassLoader()
+    {
+        return classLoader;
+    }
+
     public JavaType[] getRawJavaTypes()
     {
         return types;
@@ -87,9 +102,9 @@ public class JavaTypeRepository
     {
         try
         {
-            if(primitivesMap.containsKey( className ))
+            if(PRIMITIVES.containsKey( className ))
             {
-                return primitivesMap.get( className );
+                return PRIMITIVES.get( className );
             }
             
             return classLoader.loadClass( className );
@@ -111,28 +126,18 @@ public class JavaTypeRepository
             throw new NoSuchElementException("No method named <null> in '" + clirrClassName + "' could be found.");
         }
         
-        // [..] addRelationsipFilter(org.neo4j.helpers.Predicate, java.lang.String)
-        // to
-        // [..] addRelationsipFilter(org.neo4j.helpers.Predicate,java.lang.String)
-        clirrMethodDefinition = clirrMethodDefinition.replace( ", ", "," );
-        
-        String[] parts = clirrMethodDefinition.split(" ");
-        
-        // addRelationsipFilter(org.neo4j.helpers.Predicate)
-        String [] nameAndArgs = parts[parts.length-1].split( "\\(" );
-        String methodName = nameAndArgs[0];
-        
-        // org.neo4j.helpers.Predicate,java.lang.String)
-        String [] parameterClassNames = nameAndArgs[1].substring( 0, nameAndArgs[1].length()-1 ).split( "," );
+        String methodName = getMethodName( clirrMethodDefinition );
         List<Class<?>> parameterTypes = new ArrayList<Class<?>>();
-        if(parameterClassNames.length > 0 && parameterClassNames[0].length() > 0) 
+        for(String paramClassName : getParameterTypeNames( clirrMethodDefinition ))
         {
-            for(String paramClassName : parameterClassNames)
-            {
-                parameterTypes.add( get(paramClassName) );
-            }
+            parameterTypes.add( get(paramClassName) );
         }
         
+        // [..] addRelationsipFilter(org.neo4j.helpers.Predicate, java.lang.String)
+        // to
+        // [..] addRelationsipFilter(org.neo4j.helpers.Predicate,java.lang.String)
+        String[] parts = clirrMethodDefinition.replace( ", ", "," ).split(" ");
+        
         // org.neo4j.graphdb.Expander
         Class<?> returnType = get(parts[parts.length-2]);
         
@@ -140,7 +145,7 @@ public class JavaTypeRepository
         int modifiers = 0x0;
         for(int i=parts.length-3; i>=0 ; i--)
         {
-            modifiers |= modifierMap.get( parts[i] );
+            modifiers |= MODIFIERS.get( parts[i] );
         }
         
         // Phew.
@@ -168,6 +173,135 @@ public class JavaTypeRepository
         throw new NoSuchElementException("No method named '" + methodName + "' in '" + clirrClassName + "' could be found.");
     }
 
+    /**
+     * Returns the name of the method in a method definition as reported by Clirr,
+     * e.g. <code>addRelationsipFilter</code> for
+     * <code>public static org.neo4j.graphdb.Expander addRelationsipFilter(org.neo4j.helpers.Predicate, java.lang.String)</code>.
+     */
+    protected static String getMethodName( String clirrMethodDefinition )
+    {
+        String nameAndArgs = clirrMethodDefinition.substring( 0, clirrMethodDefinition.indexOf( '(' ) );
+        return nameAndArgs.substring( nameAndArgs.lastIndexOf( ' ' ) + 1 );
+    }
+
+    /**
+     * Returns the parameter type names in a method definition as reported by Clirr,
+     * e.g. <code>org.neo4j.helpers.Predicate</code> and <code>java.lang.String</code> for
+     * <code>public static org.neo4j.graphdb.Expander addRelationsipFilter(org.neo4j.helpers.Predicate, java.lang.String)</code>.
+     */
+    protected static String[] getParameterTypeNames( String clirrMethodDefinition )
+    {
+        String args = clirrMethodDefinition.substring( clirrMethodDefinition.indexOf( '(' ) + 1,
+                                                       clirrMethodDefinition.lastIndexOf( ')' ) ).trim();
+        if ( args.length() == 0 )
+        {
+            return new String[0];
+        }
+        return args.replace( ", ", "," ).split( "," );
+    }
+
+    /**
+     * Returns the names of the annotation types on a class.
+     *
+     * @throws NoSuchElementException if the class does not exist.
+     */
+    public Set<String> getClassAnnotations( String className )
+    {
+        return annotationNames( get( className ).getAnnotations() );
+    }
+
+    /**
+     * Returns the names of the annotation types on a method, given as reported by Clirr.
+     *
+     * @throws NoSuchElementException if the class or method does not exist.
+     */
+    public Set<String> getMethodAnnotations( String className, String clirrMethodDefinition )
+    {
+        return annotationNames( getMethod( className, clirrMethodDefinition ).getAnnotations() );
+    }
+
+    /**
+     * Returns the names of the annotation types on a method or constructor, given by its
+     * name (<code>&lt;init&gt;</code> for constructors) and parameter type names.
+     *
+     * @throws NoSuchElementException if the class or method does not exist.
+     */
+    public Set<String> getMethodAnnotations( String className, String methodName, String[] parameterTypeNames )
+    {
+        Class<?> clazz = get( className );
+        if ( "<init>".equals( methodName ) )
+        {
+            for ( Constructor<?> constructor : clazz.getDeclaredConstructors() )
+            {
+                if ( parameterTypesMatch( constructor.getParameterTypes(), parameterTypeNames ) )
+                {
+                    return annotationNames( constructor.getAnnotations() );
+                }
+            }
+        }
+        else
+        {
+            for ( Method method : clazz.getDeclaredMethods() )
+            {
+                if ( method.getName().equals( methodName )
+                    && parameterTypesMatch( method.getParameterTypes(), parameterTypeNames ) )
+                {
+                    return annotationNames( method.getAnnotations() );
+                }
+            }
+        }
+        throw new NoSuchElementException( "No method named '" + methodName + "' in '" + className
+            + "' could be found." );
+    }
+
+    /**
+     * Returns the names of the annotation types on a field.
+     *
+     * @throws NoSuchElementException if the class or field does not exist.
+     */
+    public Set<String> getFieldAnnotations( String className, String fieldName )
+    {
+        return annotationNames( getField( className, fieldName ).getAnnotations() );
+    }
+
+    private static boolean parameterTypesMatch( Class<?>[] parameterTypes, String[] parameterTypeNames )
+    {
+        if ( parameterTypes.length != parameterTypeNames.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            if ( !getTypeName( parameterTypes[i] ).equals( parameterTypeNames[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name of a type as Clirr reports it, e.g. <code>java.lang.String[]</code>.
+     */
+    protected static String getTypeName( Class<?> type )
+    {
+        if ( type.isArray() )
+        {
+            return getTypeName( type.getComponentType() ) + "[]";
+        }
+        return type.getName();
+    }
+
+    private static Set<String> annotationNames( Annotation[] annotations )
+    {
+        Set<String> names = new HashSet<String>();
+        for ( Annotation annotation : annotations )
+        {
+            names.add( annotation.annotationType().getName() );
+        }
+        return names;
+    }
+
     public Field getField( String className, String fieldName )
     {
         Class<?> clazz = get(className);
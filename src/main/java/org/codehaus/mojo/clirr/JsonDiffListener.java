@@ -0,0 +1,162 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.DiffListener;
+import net.sf.clirr.core.MessageTranslator;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Writes the differences to a file in JSON Lines format, one JSON object per line, as they
+ * are reported. The file is flushed regularly, so it can be read while the check runs.
+ *
+ * @see DifferenceFingerprint
+ */
+public class JsonDiffListener
+    implements DiffListener
+{
+    /**
+     * The number of differences written before the file is flushed.
+     */
+    private static final int FLUSH_INTERVAL = 256;
+
+    private final File file;
+
+    private final Writer out;
+
+    private final MessageTranslator translator = new MessageTranslator();
+
+    private final StringBuilder line = new StringBuilder( 512 );
+
+    private int unflushed;
+
+    public JsonDiffListener( File file )
+        throws IOException
+    {
+        this.file = file;
+        this.out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), ApiSnapshot.UTF8 ),
+                                       64 * 1024 );
+    }
+
+    public void start()
+    {
+        // JSON Lines has no header
+    }
+
+    public void reportDiff( ApiDifference difference )
+    {
+        line.setLength( 0 );
+        line.append( "{\"class\":" );
+        appendString( difference.getAffectedClass() );
+        line.append( ",\"member\":" );
+        appendString( DifferenceFingerprint.getMember( difference ) );
+        line.append( ",\"messageId\":" ).append( difference.getMessage().getId() );
+        line.append( ",\"severity\":" );
+        appendString( String.valueOf( difference.getMaximumSeverity() ) );
+        line.append( ",\"binarySeverity\":" );
+        appendString( String.valueOf( difference.getBinaryCompatibilitySeverity() ) );
+        line.append( ",\"sourceSeverity\":" );
+        appendString( String.valueOf( difference.getSourceCompatibilitySeverity() ) );
+        line.append( ",\"message\":" );
+        appendString( difference.getReport( translator ) );
+        line.append( ",\"fingerprint\":" );
+        appendString( DifferenceFingerprint.of( difference ) );
+        line.append( "}\n" );
+        try
+        {
+            out.write( line.toString() );
+            if ( ++unflushed == FLUSH_INTERVAL )
+            {
+                out.flush();
+                unflushed = 0;
+            }
+        }
+        catch ( IOException e )
+        {
+            throw failure( e );
+        }
+    }
+
+    public void stop()
+    {
+        try
+        {
+            out.close();
+        }
+        catch ( IOException e )
+        {
+            throw failure( e );
+        }
+    }
+
+    private void appendString( String value )
+    {
+        if ( value == null )
+        {
+            line.append( "null" );
+            return;
+        }
+        line.append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    line.append( "\\\"" );
+                    break;
+                case '\\':
+                    line.append( "\\\\" );
+                    break;
+                case '\n':
+                    line.append( "\\n" );
+                    break;
+                case '\r':
+                    line.append( "\\r" );
+                    break;
+                case '\t':
+                    line.append( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 )
+                    {
+                        line.append( String.format( "\\u%04x", Integer.valueOf( c ) ) );
+                    }
+                    else
+                    {
+                        line.append( c );
+                    }
+            }
+        }
+        line.append( '"' );
+    }
+
+    private IllegalStateException failure( IOException e )
+    {
+        IOUtil.close( out );
+        return new IllegalStateException( "Error writing '" + file + "': " + e.getMessage(), e );
+    }
+}
@@ -0,0 +1,196 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A class loader over dependencies, which are resolved only once a lookup misses the
+ * jars resolved so far. Only the dependencies with a groupId matching the package of the
+ * missing class are resolved, in the order given, so a miss does not resolve every
+ * dependency. Classes of dependencies whose groupId does not match their packages are
+ * not found; such previous versions need their dependencies resolved up front.
+ *
+ * @see PomDependencyWalker#collectDependencies(Set)
+ */
+public class LazyDependencyClassLoader
+    extends URLClassLoader
+{
+    private final LinkedList<Artifact> pending;
+
+    private final Map<String, Artifact> resolved = new LinkedHashMap<String, Artifact>();
+
+    private final Set<Artifact> used = new LinkedHashSet<Artifact>();
+
+    /**
+     * The packages for which every dependency with a matching groupId was resolved.
+     */
+    private final Set<String> exhaustedPackages = new HashSet<String>();
+
+    private final ArtifactResolver resolver;
+
+    private final ArtifactRepository localRepository;
+
+    private final List remoteRepositories;
+
+    private final Log log;
+
+    public LazyDependencyClassLoader( List<Artifact> dependencies, ArtifactResolver resolver,
+                                      ArtifactRepository localRepository, List remoteRepositories, Log log )
+    {
+        super( new URL[0] );
+        this.pending = new LinkedList<Artifact>( dependencies );
+        this.resolver = resolver;
+        this.localRepository = localRepository;
+        this.remoteRepositories = remoteRepositories;
+        this.log = log;
+    }
+
+    @Override
+    protected Class<?> findClass( String name )
+        throws ClassNotFoundException
+    {
+        URL resource = findResource( name.replace( '.', '/' ) + ".class" );
+        if ( resource == null )
+        {
+            throw new ClassNotFoundException( name );
+        }
+        return super.findClass( name );
+    }
+
+    @Override
+    public URL findResource( String name )
+    {
+        URL url = super.findResource( name );
+        while ( url == null && resolveNext( name ) )
+        {
+            url = super.findResource( name );
+        }
+        if ( url != null )
+        {
+            recordUse( url );
+        }
+        return url;
+    }
+
+    @Override
+    public Enumeration<URL> findResources( String name )
+        throws IOException
+    {
+        while ( resolveNext( name ) )
+        {
+            // all jars may contribute, so resolve them all
+        }
+        return super.findResources( name );
+    }
+
+    /**
+     * Returns the dependencies, which provided a class or resource so far.
+     */
+    public synchronized List<Artifact> getUsedArtifacts()
+    {
+        return new ArrayList<Artifact>( used );
+    }
+
+    /**
+     * Returns the number of dependencies, which have not been resolved.
+     */
+    public synchronized int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    private synchronized boolean resolveNext( String resourceName )
+    {
+        String packageName = resourceName.lastIndexOf( '/' ) < 0 ? ""
+                        : resourceName.substring( 0, resourceName.lastIndexOf( '/' ) ).replace( '/', '.' );
+        if ( exhaustedPackages.contains( packageName ) )
+        {
+            return false;
+        }
+        Artifact next = null;
+        for ( Iterator<Artifact> i = pending.iterator(); i.hasNext() && next == null; )
+        {
+            Artifact candidate = i.next();
+            if ( packageName.startsWith( candidate.getGroupId() ) )
+            {
+                next = candidate;
+                i.remove();
+            }
+        }
+        if ( next == null )
+        {
+            exhaustedPackages.add( packageName );
+            return false;
+        }
+
+        try
+        {
+            log.debug( "Resolving " + next + " to look up " + resourceName );
+            resolver.resolve( next, remoteRepositories, localRepository );
+            URL url = next.getFile().toURI().toURL();
+            resolved.put( url.toExternalForm(), next );
+            addURL( url );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            log.warn( "Unable to resolve dependency " + next + ": " + e.getMessage() );
+        }
+        catch ( ArtifactNotFoundException e )
+        {
+            log.warn( "Unable to find dependency " + next + ": " + e.getMessage() );
+        }
+        catch ( MalformedURLException e )
+        {
+            log.warn( "Unable to use dependency " + next + ": " + e.getMessage() );
+        }
+        return true;
+    }
+
+    private synchronized void recordUse( URL resource )
+    {
+        String location = resource.toExternalForm();
+        for ( Map.Entry<String, Artifact> entry : resolved.entrySet() )
+        {
+            if ( location.startsWith( "jar:" + entry.getKey() ) || location.startsWith( entry.getKey() ) )
+            {
+                used.add( entry.getValue() );
+                return;
+            }
+        }
+    }
+}
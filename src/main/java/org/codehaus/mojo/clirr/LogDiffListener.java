@@ -16,6 +16,12 @@ package org.codehaus.mojo.clirr;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 import net.sf.clirr.core.ApiDifference;
 import net.sf.clirr.core.DiffListenerAdapter;
 import net.sf.clirr.core.MessageTranslator;
@@ -24,7 +30,9 @@ import net.sf.clirr.core.Severity;
 import org.apache.maven.plugin.logging.Log;
 
 /**
- * Log messages to the console as they are processed.
+ * Log messages to the console as they are processed. Differences are only formatted if their
+ * level is enabled. Optionally, the differences of classes with many of them are logged as one
+ * summary line per class and severity, when the listener is stopped.
  *
  * @author <a href="mailto:brett@apache.org">Brett Porter</a>
  */
@@ -35,19 +43,121 @@ public class LogDiffListener
 
     private final MessageTranslator messageTranslator;
 
+    private final int summaryThreshold;
+
+    /**
+     * The differences kept for summaries, by class and severity, in the order found.
+     */
+    private final Map<String, List<ApiDifference>> pending = new LinkedHashMap<String, List<ApiDifference>>();
+
     public LogDiffListener( Log log )
+    {
+        this( log, new MessageTranslator(), 0 );
+    }
+
+    /**
+     * @param messageTranslator The translator of the messages, which may be shared.
+     * @param summaryThreshold Classes with more differences of a severity are logged as a summary,
+     *   0 logs all differences as they are found.
+     */
+    public LogDiffListener( Log log, MessageTranslator messageTranslator, int summaryThreshold )
     {
         this.log = log;
 
-        this.messageTranslator = new MessageTranslator();
+        this.messageTranslator = messageTranslator;
+
+        this.summaryThreshold = summaryThreshold;
+    }
+
+    /**
+     * Whether differences of a severity are logged at the current log level.
+     */
+    public boolean isEnabled( Severity severity )
+    {
+        if ( severity.equals( Severity.INFO ) )
+        {
+            return log.isInfoEnabled();
+        }
+        else if ( severity.equals( Severity.WARNING ) )
+        {
+            return log.isWarnEnabled();
+        }
+        else if ( severity.equals( Severity.ERROR ) )
+        {
+            return log.isErrorEnabled();
+        }
+        return false;
     }
 
     @Override
     public void reportDiff( ApiDifference apiDifference )
     {
-        String message = apiDifference.getAffectedClass() + ": " + apiDifference.getReport( messageTranslator );
-
         Severity severity = apiDifference.getMaximumSeverity();
+        if ( !isEnabled( severity ) )
+        {
+            return;
+        }
+
+        if ( summaryThreshold > 0 )
+        {
+            String key = apiDifference.getAffectedClass() + '|' + severity;
+            List<ApiDifference> differences = pending.get( key );
+            if ( differences == null )
+            {
+                differences = new ArrayList<ApiDifference>();
+                pending.put( key, differences );
+            }
+            differences.add( apiDifference );
+        }
+        else
+        {
+            log( severity, apiDifference.getAffectedClass() + ": " + apiDifference.getReport( messageTranslator ) );
+        }
+    }
+
+    /**
+     * Logs the differences kept for summaries.
+     */
+    @Override
+    public void stop()
+    {
+        for ( List<ApiDifference> differences : pending.values() )
+        {
+            ApiDifference first = differences.get( 0 );
+            if ( differences.size() <= summaryThreshold )
+            {
+                for ( ApiDifference difference : differences )
+                {
+                    log( first.getMaximumSeverity(),
+                         difference.getAffectedClass() + ": " + difference.getReport( messageTranslator ) );
+                }
+                continue;
+            }
+
+            Map<Integer, Integer> codes = new TreeMap<Integer, Integer>();
+            for ( ApiDifference difference : differences )
+            {
+                Integer code = Integer.valueOf( difference.getMessage().getId() );
+                Integer count = codes.get( code );
+                codes.put( code, Integer.valueOf( count == null ? 1 : count.intValue() + 1 ) );
+            }
+            StringBuilder message = new StringBuilder( first.getAffectedClass() );
+            message.append( ": " ).append( differences.size() ).append( " differences (" );
+            boolean separate = false;
+            for ( Map.Entry<Integer, Integer> code : codes.entrySet() )
+            {
+                message.append( separate ? ", " : "" );
+                message.append( code.getValue() ).append( " x " ).append( code.getKey() );
+                separate = true;
+            }
+            message.append( "), first: " ).append( first.getReport( messageTranslator ) );
+            log( first.getMaximumSeverity(), message.toString() );
+        }
+        pending.clear();
+    }
+
+    private void log( Severity severity, String message )
+    {
         if ( severity.equals( Severity.INFO ) )
         {
             log.info( message );
@@ -0,0 +1,163 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import net.sf.clirr.core.ApiDifference;
+
+/**
+ * Excludes differences of methods and fields matching patterns like
+ * <code>*Impl.internal*(..)</code>: a class, a dot or <code>#</code>, and a member. A method is
+ * given with its parameter types, e.g. <code>put(java.lang.String,int)</code>, where
+ * <code>(..)</code> matches any parameters; without parameters, the pattern matches fields and
+ * methods of that name. <code>*</code> matches any characters, including dots, and
+ * <code>?</code> any single character.
+ * <p>
+ * The patterns are compiled once. They are grouped by the literal start of their class, and
+ * the patterns of a group are combined into one {@link GlobAutomaton}, so a difference is only
+ * matched against the groups whose start it begins with, in one pass each.
+ */
+public class MemberExclusionFilter
+    implements ApiDifferenceFilter
+{
+    private final Map<String, GlobAutomaton> groups = new HashMap<String, GlobAutomaton>();
+
+    /**
+     * The distinct lengths of the starts of the groups.
+     */
+    private final int[] prefixLengths;
+
+    /**
+     * @throws IllegalArgumentException A pattern has no class or member.
+     */
+    public MemberExclusionFilter( String[] patterns )
+    {
+        Map<String, List<String>> globs = new HashMap<String, List<String>>();
+        for ( String pattern : patterns )
+        {
+            String[] parts = split( pattern );
+            String classGlob = parts[0];
+            int wildcard = indexOfWildcard( classGlob );
+            String prefix = wildcard < 0 ? classGlob : classGlob.substring( 0, wildcard );
+            List<String> group = globs.get( prefix );
+            if ( group == null )
+            {
+                group = new ArrayList<String>();
+                globs.put( prefix, group );
+            }
+            for ( int i = 1; i < parts.length; i++ )
+            {
+                group.add( classGlob.substring( prefix.length() ) + '#' + parts[i] );
+            }
+        }
+
+        TreeSet<Integer> lengths = new TreeSet<Integer>();
+        for ( Map.Entry<String, List<String>> group : globs.entrySet() )
+        {
+            groups.put( group.getKey(), new GlobAutomaton( group.getValue() ) );
+            lengths.add( group.getKey().length() );
+        }
+        prefixLengths = new int[lengths.size()];
+        int i = 0;
+        for ( Integer length : lengths )
+        {
+            prefixLengths[i++] = length;
+        }
+    }
+
+    public boolean shouldInclude( ApiDifference apiDiff )
+    {
+        String member = getSignature( apiDiff );
+        if ( member == null )
+        {
+            return true;
+        }
+        String className = apiDiff.getAffectedClass();
+        String subject = className + '#' + member;
+        for ( int i = 0; i < prefixLengths.length && prefixLengths[i] <= className.length(); i++ )
+        {
+            GlobAutomaton group = groups.get( className.substring( 0, prefixLengths[i] ) );
+            if ( group != null && group.matches( subject, prefixLengths[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the affected member of a difference as matched, e.g. <code>put(java.lang.String,int)</code>
+     * for a method, or null if it affects the class.
+     */
+    static String getSignature( ApiDifference difference )
+    {
+        String method = difference.getAffectedMethod();
+        if ( method == null )
+        {
+            return difference.getAffectedField();
+        }
+        StringBuilder signature = new StringBuilder( JavaTypeRepository.getMethodName( method ) ).append( '(' );
+        String[] parameterTypes = JavaTypeRepository.getParameterTypeNames( method );
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            signature.append( i > 0 ? "," : "" ).append( parameterTypes[i].trim() );
+        }
+        return signature.append( ')' ).toString();
+    }
+
+    /**
+     * Splits a pattern into the glob of the class and the globs of the member.
+     */
+    private static String[] split( String pattern )
+    {
+        String compact = pattern.replaceAll( "\\s", "" );
+        int separator = compact.indexOf( '#' );
+        if ( separator < 0 )
+        {
+            int parameters = compact.indexOf( '(' );
+            separator = compact.lastIndexOf( '.', parameters < 0 ? compact.length() - 1 : parameters - 1 );
+        }
+        if ( separator <= 0 || separator == compact.length() - 1 )
+        {
+            throw new IllegalArgumentException( "The member pattern '" + pattern + "' needs a class and a member" );
+        }
+        String classGlob = compact.substring( 0, separator );
+        String member = compact.substring( separator + 1 );
+        if ( member.indexOf( '(' ) < 0 )
+        {
+            return new String[]{classGlob, member, member + "(*)"};
+        }
+        if ( !member.endsWith( ")" ) )
+        {
+            throw new IllegalArgumentException( "The parameters of the member pattern '" + pattern
+                + "' are not closed" );
+        }
+        return new String[]{classGlob, member.replace( "..", "*" )};
+    }
+
+    private static int indexOfWildcard( String glob )
+    {
+        int star = glob.indexOf( '*' );
+        int question = glob.indexOf( '?' );
+        return star < 0 ? question : question < 0 ? star : Math.min( star, question );
+    }
+}
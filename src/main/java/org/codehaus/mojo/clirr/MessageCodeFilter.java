@@ -1,5 +1,8 @@
 package org.codehaus.mojo.clirr;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 import net.sf.clirr.core.ApiDifference;
@@ -28,13 +31,21 @@ public class MessageCodeFilter implements ApiDifferenceFilter
         
     }
 
-    private Set<Integer> excludes;
-    private Set<Integer> includes;
+    private final Set<Integer> excludes;
+    private final Set<Integer> includes;
 
     public MessageCodeFilter(Set<Integer> includes, Set<Integer> excludes)
     {
-        this.includes = includes;
-        this.excludes = excludes;
+        this.includes = Collections.unmodifiableSet( new HashSet<Integer>( includes ) );
+        this.excludes = Collections.unmodifiableSet( new HashSet<Integer>( excludes ) );
+    }
+
+    /**
+     * Creates a filter which excludes the given message codes.
+     */
+    public static MessageCodeFilter excluding( Integer... codes )
+    {
+        return new MessageCodeFilter( Collections.<Integer>emptySet(), new HashSet<Integer>( Arrays.asList( codes ) ) );
     }
     
     public boolean shouldInclude(ApiDifference diff )
@@ -0,0 +1,518 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Collects the transitive dependencies of released artifacts by reading the dependency
+ * sections of their POMs directly, instead of building a full project for each of them.
+ * Parents, properties, dependency management (including imports), exclusions and profiles
+ * active by default are honoured. POMs using anything else that may change the
+ * dependencies, like version ranges or relocations, are reported as unsupported, so
+ * that the caller can fall back to full project building.
+ * <p>
+ * Parsed release POMs are cached by their coordinates for the duration of a Maven session.
+ */
+public class PomDependencyWalker
+{
+    private static Date sessionStartTime;
+
+    private static Map<String, PomInfo> sessionPoms;
+
+    private final Map<String, PomInfo> poms;
+
+    private final ArtifactFactory factory;
+
+    private final ArtifactResolver resolver;
+
+    private final ArtifactRepository localRepository;
+
+    private final List remoteRepositories;
+
+    private final Log log;
+
+    /**
+     * @param session The current session, whose walkers share the parsed POMs, or null, if
+     *            nothing should be shared.
+     */
+    public PomDependencyWalker( MavenSession session, ArtifactFactory factory, ArtifactResolver resolver,
+                                ArtifactRepository localRepository, List remoteRepositories, Log log )
+    {
+        this.poms = getPoms( session );
+        this.factory = factory;
+        this.resolver = resolver;
+        this.localRepository = localRepository;
+        this.remoteRepositories = remoteRepositories;
+        this.log = log;
+    }
+
+    /**
+     * Returns the parsed POMs of the given session, replacing the POMs of any earlier session.
+     */
+    private static synchronized Map<String, PomInfo> getPoms( MavenSession session )
+    {
+        Date startTime = session == null ? null : session.getStartTime();
+        if ( startTime == null )
+        {
+            return Collections.synchronizedMap( new HashMap<String, PomInfo>() );
+        }
+        if ( sessionPoms == null || !startTime.equals( sessionStartTime ) )
+        {
+            sessionStartTime = startTime;
+            sessionPoms = Collections.synchronizedMap( new HashMap<String, PomInfo>() );
+        }
+        return sessionPoms;
+    }
+
+    /**
+     * Collects and resolves the transitive dependencies of <code>artifacts</code>.
+     *
+     * @param artifacts The artifacts to collect the dependencies for.
+     * @return The resolved dependencies, or null, if a POM needs full model building.
+     */
+    public List<Artifact> resolveDependencies( Set<Artifact> artifacts )
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        List<Artifact> dependencies = collectDependencies( artifacts );
+        if ( dependencies != null )
+        {
+            for ( Artifact dependency : dependencies )
+            {
+                resolver.resolve( dependency, remoteRepositories, localRepository );
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Collects the transitive dependencies of <code>artifacts</code>, in nearest first
+     * order, without resolving their files. Only the POMs are resolved.
+     *
+     * @param artifacts The artifacts to collect the dependencies for.
+     * @return The unresolved dependencies, or null, if a POM needs full model building.
+     */
+    public List<Artifact> collectDependencies( Set<Artifact> artifacts )
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        try
+        {
+            Map<String, Artifact> selected = new LinkedHashMap<String, Artifact>();
+            Set<String> rootKeys = new HashSet<String>();
+            for ( Artifact artifact : artifacts )
+            {
+                rootKeys.add( artifact.getGroupId() + ':' + artifact.getArtifactId() );
+            }
+
+            for ( Artifact artifact : artifacts )
+            {
+                PomInfo root = getPomInfo( artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion() );
+                LinkedList<Node> queue = new LinkedList<Node>();
+                for ( DependencyInfo dependency : root.dependencies )
+                {
+                    if ( !Artifact.SCOPE_TEST.equals( dependency.scope )
+                        && !Artifact.SCOPE_SYSTEM.equals( dependency.scope ) )
+                    {
+                        queue.add( new Node( dependency, dependency.exclusions ) );
+                    }
+                }
+
+                while ( !queue.isEmpty() )
+                {
+                    Node node = queue.removeFirst();
+                    DependencyInfo dependency = node.dependency;
+                    String key = dependency.getKey();
+                    if ( selected.containsKey( key )
+                        || rootKeys.contains( dependency.groupId + ':' + dependency.artifactId ) )
+                    {
+                        continue;
+                    }
+
+                    String version = dependency.version;
+                    DependencyInfo managed = root.managedDependencies.get( key );
+                    if ( node.depth > 1 && managed != null && managed.version != null )
+                    {
+                        version = managed.version;
+                    }
+                    checkVersion( dependency.groupId, dependency.artifactId, version );
+
+                    Artifact selectedArtifact =
+                        factory.createDependencyArtifact( dependency.groupId, dependency.artifactId,
+                                                          VersionRange.createFromVersion( version ), dependency.type,
+                                                          dependency.classifier, dependency.scope == null
+                                                              ? Artifact.SCOPE_COMPILE : dependency.scope );
+                    selected.put( key, selectedArtifact );
+
+                    PomInfo info = getPomInfo( dependency.groupId, dependency.artifactId, version );
+                    for ( DependencyInfo child : info.dependencies )
+                    {
+                        if ( child.optional || node.excludes( child ) || !( child.scope == null
+                            || Artifact.SCOPE_COMPILE.equals( child.scope )
+                            || Artifact.SCOPE_RUNTIME.equals( child.scope ) ) )
+                        {
+                            continue;
+                        }
+                        Set<String> exclusions = new HashSet<String>( node.exclusions );
+                        exclusions.addAll( child.exclusions );
+                        queue.add( new Node( child, exclusions, node.depth + 1 ) );
+                    }
+                }
+            }
+
+            List<Artifact> dependencies = new ArrayList<Artifact>( selected.size() );
+            for ( Artifact artifact : selected.values() )
+            {
+                // POM dependencies only contribute their own dependencies
+                if ( !"pom".equals( artifact.getType() ) )
+                {
+                    dependencies.add( artifact );
+                }
+            }
+            return dependencies;
+        }
+        catch ( UnsupportedPomException e )
+        {
+            log.debug( "Falling back to full project building: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private PomInfo getPomInfo( String groupId, String artifactId, String version )
+        throws ArtifactResolutionException, ArtifactNotFoundException, UnsupportedPomException
+    {
+        String gav = groupId + ':' + artifactId + ':' + version;
+        PomInfo info = poms.get( gav );
+        if ( info != null )
+        {
+            return info;
+        }
+
+        Model model = readModel( groupId, artifactId, version );
+        if ( model.getDistributionManagement() != null
+            && model.getDistributionManagement().getRelocation() != null )
+        {
+            throw new UnsupportedPomException( gav + " is relocated" );
+        }
+
+        PomInfo parent = null;
+        Parent parentRef = model.getParent();
+        if ( parentRef != null )
+        {
+            checkVersion( parentRef.getGroupId(), parentRef.getArtifactId(), parentRef.getVersion() );
+            parent = getPomInfo( parentRef.getGroupId(), parentRef.getArtifactId(), parentRef.getVersion() );
+        }
+
+        info = new PomInfo();
+        Properties properties = info.properties;
+        if ( parent != null )
+        {
+            properties.putAll( parent.properties );
+            info.rawManagedDependencies.addAll( parent.rawManagedDependencies );
+            info.rawDependencies.addAll( parent.rawDependencies );
+        }
+        properties.putAll( model.getProperties() );
+
+        List activeProfiles = new ArrayList();
+        for ( Iterator i = model.getProfiles().iterator(); i.hasNext(); )
+        {
+            Profile profile = (Profile) i.next();
+            if ( profile.getActivation() != null && profile.getActivation().isActiveByDefault() )
+            {
+                activeProfiles.add( profile );
+                properties.putAll( profile.getProperties() );
+            }
+        }
+
+        if ( parentRef == null && ( model.getGroupId() == null || model.getVersion() == null ) )
+        {
+            throw new UnsupportedPomException( gav + " declares no " + ( model.getGroupId() == null ? "groupId"
+                            : "version" ) + " and has no parent to inherit it from" );
+        }
+        String modelGroupId = model.getGroupId() != null ? model.getGroupId() : parentRef.getGroupId();
+        String modelVersion = model.getVersion() != null ? model.getVersion() : parentRef.getVersion();
+        for ( String prefix : new String[]{ "project.", "pom.", "" } )
+        {
+            properties.setProperty( prefix + "groupId", modelGroupId );
+            properties.setProperty( prefix + "artifactId", artifactId );
+            properties.setProperty( prefix + "version", modelVersion );
+            if ( parentRef != null )
+            {
+                properties.setProperty( prefix + "parent.groupId", parentRef.getGroupId() );
+                properties.setProperty( prefix + "parent.version", parentRef.getVersion() );
+            }
+        }
+
+        // inherited sections are interpolated with the properties of the inheriting POM
+        List managed = info.rawManagedDependencies;
+        List dependencies = info.rawDependencies;
+        dependencies.addAll( model.getDependencies() );
+        if ( model.getDependencyManagement() != null )
+        {
+            managed.addAll( 0, model.getDependencyManagement().getDependencies() );
+        }
+        for ( Iterator i = activeProfiles.iterator(); i.hasNext(); )
+        {
+            Profile profile = (Profile) i.next();
+            dependencies.addAll( profile.getDependencies() );
+            if ( profile.getDependencyManagement() != null )
+            {
+                managed.addAll( 0, profile.getDependencyManagement().getDependencies() );
+            }
+        }
+
+        Map<String, DependencyInfo> imported = new LinkedHashMap<String, DependencyInfo>();
+        for ( Iterator i = managed.iterator(); i.hasNext(); )
+        {
+            DependencyInfo dependency = new DependencyInfo( (Dependency) i.next(), properties );
+            if ( "import".equals( dependency.scope ) && "pom".equals( dependency.type ) )
+            {
+                checkVersion( dependency.groupId, dependency.artifactId, dependency.version );
+                PomInfo bom = getPomInfo( dependency.groupId, dependency.artifactId, dependency.version );
+                imported.putAll( bom.managedDependencies );
+            }
+            else if ( !info.managedDependencies.containsKey( dependency.getKey() ) )
+            {
+                info.managedDependencies.put( dependency.getKey(), dependency );
+            }
+        }
+        for ( Map.Entry<String, DependencyInfo> entry : imported.entrySet() )
+        {
+            if ( !info.managedDependencies.containsKey( entry.getKey() ) )
+            {
+                info.managedDependencies.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
+        {
+            DependencyInfo dependency = new DependencyInfo( (Dependency) i.next(), properties );
+            DependencyInfo managedDependency = info.managedDependencies.get( dependency.getKey() );
+            if ( managedDependency != null )
+            {
+                if ( dependency.version == null )
+                {
+                    dependency.version = managedDependency.version;
+                }
+                if ( dependency.scope == null )
+                {
+                    dependency.scope = managedDependency.scope;
+                }
+                if ( dependency.exclusions.isEmpty() )
+                {
+                    dependency.exclusions.addAll( managedDependency.exclusions );
+                }
+            }
+            if ( !Artifact.SCOPE_TEST.equals( dependency.scope ) )
+            {
+                checkVersion( dependency.groupId, dependency.artifactId, dependency.version );
+            }
+            info.dependencies.add( dependency );
+        }
+
+        if ( !version.endsWith( Artifact.SNAPSHOT_VERSION ) )
+        {
+            poms.put( gav, info );
+        }
+        return info;
+    }
+
+    private Model readModel( String groupId, String artifactId, String version )
+        throws ArtifactResolutionException, ArtifactNotFoundException, UnsupportedPomException
+    {
+        Artifact pomArtifact = factory.createProjectArtifact( groupId, artifactId, version );
+        resolver.resolve( pomArtifact, remoteRepositories, localRepository );
+
+        Reader reader = null;
+        try
+        {
+            reader = ReaderFactory.newXmlReader( pomArtifact.getFile() );
+            return new MavenXpp3Reader().read( reader );
+        }
+        catch ( IOException e )
+        {
+            throw new UnsupportedPomException( "Unable to read " + pomArtifact.getFile() + ": " + e.getMessage() );
+        }
+        catch ( XmlPullParserException e )
+        {
+            throw new UnsupportedPomException( "Unable to parse " + pomArtifact.getFile() + ": " + e.getMessage() );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private static void checkVersion( String groupId, String artifactId, String version )
+        throws UnsupportedPomException
+    {
+        if ( version == null || version.indexOf( "${" ) >= 0 || version.startsWith( "[" )
+            || version.startsWith( "(" ) )
+        {
+            throw new UnsupportedPomException( "Unsupported version '" + version + "' for " + groupId + ':'
+                + artifactId );
+        }
+    }
+
+    private static String interpolate( String value, Properties properties )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+        StringBuffer sb = new StringBuffer();
+        int pos = 0;
+        for ( int start = value.indexOf( "${" ); start >= 0; start = value.indexOf( "${", pos ) )
+        {
+            int end = value.indexOf( '}', start );
+            if ( end < 0 )
+            {
+                break;
+            }
+            String name = value.substring( start + 2, end );
+            String replacement = properties.getProperty( name, System.getProperty( name ) );
+            sb.append( value.substring( pos, start ) );
+            sb.append( replacement != null ? replacement : value.substring( start, end + 1 ) );
+            pos = end + 1;
+        }
+        sb.append( value.substring( pos ) );
+        return sb.toString();
+    }
+
+    private static class PomInfo
+    {
+        private final Properties properties = new Properties();
+
+        private final List rawManagedDependencies = new ArrayList();
+
+        private final List rawDependencies = new ArrayList();
+
+        private final Map<String, DependencyInfo> managedDependencies = new LinkedHashMap<String, DependencyInfo>();
+
+        private final List<DependencyInfo> dependencies = new ArrayList<DependencyInfo>();
+    }
+
+    private static class DependencyInfo
+    {
+        private final String groupId;
+
+        private final String artifactId;
+
+        private String version;
+
+        private final String type;
+
+        private final String classifier;
+
+        private String scope;
+
+        private final boolean optional;
+
+        private final Set<String> exclusions = new HashSet<String>();
+
+        DependencyInfo( Dependency dependency, Properties properties )
+        {
+            this.groupId = interpolate( dependency.getGroupId(), properties );
+            this.artifactId = interpolate( dependency.getArtifactId(), properties );
+            this.version = interpolate( dependency.getVersion(), properties );
+            this.type = dependency.getType() == null ? "jar" : interpolate( dependency.getType(), properties );
+            this.classifier = interpolate( dependency.getClassifier(), properties );
+            this.scope = interpolate( dependency.getScope(), properties );
+            this.optional = dependency.isOptional();
+            for ( Iterator i = dependency.getExclusions().iterator(); i.hasNext(); )
+            {
+                Exclusion exclusion = (Exclusion) i.next();
+                exclusions.add( interpolate( exclusion.getGroupId(), properties ) + ':'
+                    + interpolate( exclusion.getArtifactId(), properties ) );
+            }
+        }
+
+        String getKey()
+        {
+            return groupId + ':' + artifactId + ':' + type + ( classifier == null ? "" : ':' + classifier );
+        }
+    }
+
+    private static class Node
+    {
+        private final DependencyInfo dependency;
+
+        private final Set<String> exclusions;
+
+        private final int depth;
+
+        Node( DependencyInfo dependency, Set<String> exclusions )
+        {
+            this( dependency, exclusions, 1 );
+        }
+
+        Node( DependencyInfo dependency, Set<String> exclusions, int depth )
+        {
+            this.dependency = dependency;
+            this.exclusions = exclusions;
+            this.depth = depth;
+        }
+
+        boolean excludes( DependencyInfo child )
+        {
+            return exclusions.contains( child.groupId + ':' + child.artifactId )
+                || exclusions.contains( child.groupId + ":*" ) || exclusions.contains( "*:*" );
+        }
+    }
+
+    private static class UnsupportedPomException
+        extends Exception
+    {
+        private static final long serialVersionUID = 7712483619236410391L;
+
+        UnsupportedPomException( String message )
+        {
+            super( message );
+        }
+    }
+}
@@ -1,8 +1,5 @@
 package org.codehaus.mojo.clirr;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.HashSet;
 import java.util.NoSuchElementException;
 
 import net.sf.clirr.core.ApiDifference;
@@ -10,21 +7,21 @@ import net.sf.clirr.core.ApiDifference;
 public class SkipDeprecatedFilter implements ApiDifferenceFilter
 {
 
-    private JavaTypeRepository originalClasses;
+    private static final String DEPRECATED = Deprecated.class.getName();
 
-    public static MessageCodeFilter DEPRECATATED_FILTER = new MessageCodeFilter(new HashSet<Integer>(), new HashSet<Integer>(){{
-        // Errors that are excluded when they apply to 
-        // a deprecated class/field/method
-        
-        add(MessageCodeFilter.Codes.METHOD_REMOVED);
-        add(MessageCodeFilter.Codes.METHOD_DECREASED_VISIBILITY);
+    private final JavaTypeRepository originalClasses;
+
+    // Errors that are excluded when they apply to 
+    // a deprecated class/field/method
+    public static final MessageCodeFilter DEPRECATATED_FILTER = MessageCodeFilter.excluding(
+        MessageCodeFilter.Codes.METHOD_REMOVED,
+        MessageCodeFilter.Codes.METHOD_DECREASED_VISIBILITY,
         
-        add(MessageCodeFilter.Codes.CLASS_REMOVED);
-        add(MessageCodeFilter.Codes.CLASS_DECREASED_VISIBILITY);
+        MessageCodeFilter.Codes.CLASS_REMOVED,
+        MessageCodeFilter.Codes.CLASS_DECREASED_VISIBILITY,
         
-        add(MessageCodeFilter.Codes.FIELD_REMOVED);
-        add(MessageCodeFilter.Codes.FIELD_DECREASED_VISIBILITY);
-    }});
+        MessageCodeFilter.Codes.FIELD_REMOVED,
+        MessageCodeFilter.Codes.FIELD_DECREASED_VISIBILITY );
     
     public SkipDeprecatedFilter( JavaTypeRepository origClasses )
     {
@@ -37,24 +34,19 @@ public class SkipDeprecatedFilter implements ApiDifferenceFilter
         {
             if(apiDiff.getAffectedMethod() == null && apiDiff.getAffectedField() == null)
             {
-                Class<?> clazz = originalClasses.get( apiDiff.getAffectedClass() );
-                if(clazz.getAnnotation( Deprecated.class ) != null)
+                if(originalClasses.getClassAnnotations( apiDiff.getAffectedClass() ).contains( DEPRECATED ))
                 {
                     return DEPRECATATED_FILTER.shouldInclude( apiDiff );
                 }
             } else if(apiDiff.getAffectedMethod() != null )
             {
-                Method method = originalClasses.getMethod( apiDiff.getAffectedClass(), apiDiff.getAffectedMethod() );
-                
-                if(method.getAnnotation( Deprecated.class ) != null)
+                if(originalClasses.getMethodAnnotations( apiDiff.getAffectedClass(), apiDiff.getAffectedMethod() ).contains( DEPRECATED ))
                 {
                     return DEPRECATATED_FILTER.shouldInclude( apiDiff );
                 }
             } else 
             {
-                Field field = originalClasses.getField( apiDiff.getAffectedClass(), apiDiff.getAffectedField() );
-                
-                if(field.getAnnotation( Deprecated.class ) != null)
+                if(originalClasses.getFieldAnnotations( apiDiff.getAffectedClass(), apiDiff.getAffectedField() ).contains( DEPRECATED ))
                 {
                     return DEPRECATATED_FILTER.shouldInclude( apiDiff );
                 }
@@ -0,0 +1,215 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.sf.clirr.core.spi.Scope;
+
+/**
+ * Decodes the parts of a mapped API snapshot on demand. Only absolute reads are used,
+ * so a buffer is shared by all threads comparing against the snapshot.
+ *
+ * @see ApiSnapshot
+ */
+final class SnapshotBuffer
+{
+    private final ByteBuffer buffer;
+
+    private final int stringTable;
+
+    private final int typeCount;
+
+    private final int typeTable;
+
+    /**
+     * The strings decoded so far. Strings are immutable, so racing threads at worst decode
+     * a string twice.
+     */
+    private final String[] strings;
+
+    SnapshotBuffer( ByteBuffer buffer )
+    {
+        this.buffer = buffer;
+        this.strings = new String[buffer.getInt( 8 )];
+        this.stringTable = buffer.getInt( 12 );
+        this.typeCount = buffer.getInt( 16 );
+        this.typeTable = buffer.getInt( 20 );
+    }
+
+    int getInt( int offset )
+    {
+        return buffer.getInt( offset );
+    }
+
+    Scope getScope( int offset )
+    {
+        return ApiSnapshot.SCOPES[buffer.get( offset )];
+    }
+
+    String getString( int index )
+    {
+        if ( index < 0 )
+        {
+            return null;
+        }
+        String value = strings[index];
+        if ( value == null )
+        {
+            int offset = buffer.getInt( stringTable + 4 * index );
+            byte[] bytes = new byte[buffer.getInt( offset )];
+            for ( int i = 0; i < bytes.length; i++ )
+            {
+                bytes[i] = buffer.get( offset + 4 + i );
+            }
+            value = new String( bytes, ApiSnapshot.UTF8 );
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the string referenced at <code>offset</code>, or null.
+     */
+    String getStringAt( int offset )
+    {
+        return getString( buffer.getInt( offset ) );
+    }
+
+    /**
+     * Returns the strings of the list starting at <code>offset</code>.
+     */
+    String[] getStrings( int offset )
+    {
+        String[] values = new String[buffer.getInt( offset )];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            values[i] = getString( buffer.getInt( offset + 4 + 4 * i ) );
+        }
+        return values;
+    }
+
+    Set<String> getStringSet( int offset )
+    {
+        String[] values = getStrings( offset );
+        if ( values.length == 0 )
+        {
+            return Collections.emptySet();
+        }
+        Set<String> set = new HashSet<String>( values.length );
+        Collections.addAll( set, values );
+        return Collections.unmodifiableSet( set );
+    }
+
+    /**
+     * Compares the strings of the list starting at <code>offset</code> to <code>values</code>.
+     */
+    boolean stringsEqual( int offset, String[] values )
+    {
+        if ( buffer.getInt( offset ) != values.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < values.length; i++ )
+        {
+            if ( !values[i].equals( getString( buffer.getInt( offset + 4 + 4 * i ) ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Object getConstant( int offset )
+    {
+        if ( offset < 0 )
+        {
+            return null;
+        }
+        int tag = buffer.get( offset );
+        switch ( tag )
+        {
+            case 'I':
+                return Integer.valueOf( buffer.getInt( offset + 1 ) );
+            case 'J':
+                return Long.valueOf( buffer.getLong( offset + 1 ) );
+            case 'F':
+                return Float.valueOf( buffer.getFloat( offset + 1 ) );
+            case 'D':
+                return Double.valueOf( buffer.getDouble( offset + 1 ) );
+            case 'S':
+                return Short.valueOf( buffer.getShort( offset + 1 ) );
+            case 'B':
+                return Byte.valueOf( buffer.get( offset + 1 ) );
+            case 'C':
+                return Character.valueOf( buffer.getChar( offset + 1 ) );
+            case 'Z':
+                return Boolean.valueOf( buffer.get( offset + 1 ) != 0 );
+            case 'T':
+                return getString( buffer.getInt( offset + 1 ) );
+            default:
+                throw new IllegalStateException( "Unknown constant tag " + tag );
+        }
+    }
+
+    int getTypeCount()
+    {
+        return typeCount;
+    }
+
+    String getTypeName( int index )
+    {
+        return getStringAt( typeTable + 8 * index );
+    }
+
+    int getTypeRecord( int index )
+    {
+        return buffer.getInt( typeTable + 8 * index + 4 );
+    }
+
+    /**
+     * Looks up a type in the sorted type table.
+     *
+     * @return The offset of the record of the type, or -1 if the snapshot has no such type.
+     */
+    int findTypeRecord( String name )
+    {
+        int low = 0;
+        int high = typeCount - 1;
+        while ( low <= high )
+        {
+            int middle = ( low + high ) >>> 1;
+            int comparison = getTypeName( middle ).compareTo( name );
+            if ( comparison < 0 )
+            {
+                low = middle + 1;
+            }
+            else if ( comparison > 0 )
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return getTypeRecord( middle );
+            }
+        }
+        return -1;
+    }
+}
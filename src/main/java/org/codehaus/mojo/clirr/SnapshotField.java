@@ -0,0 +1,101 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Set;
+
+import net.sf.clirr.core.spi.Field;
+import net.sf.clirr.core.spi.JavaType;
+import net.sf.clirr.core.spi.Scope;
+
+/**
+ * A field of an API snapshot, decoded from its entry in the field table on each access.
+ *
+ * @see ApiSnapshot
+ */
+public class SnapshotField
+    implements Field
+{
+    private final SnapshotTypeRepository repository;
+
+    private final SnapshotBuffer buffer;
+
+    private final int entry;
+
+    SnapshotField( SnapshotTypeRepository repository, int entry )
+    {
+        this.repository = repository;
+        this.buffer = repository.getBuffer();
+        this.entry = entry;
+    }
+
+    public String getName()
+    {
+        return buffer.getStringAt( entry + ApiSnapshot.MEMBER_NAME );
+    }
+
+    public JavaType getType()
+    {
+        return repository.getType( buffer.getStringAt( entry + ApiSnapshot.MEMBER_TYPE ) );
+    }
+
+    public boolean isFinal()
+    {
+        return ( getFlags() & ApiSnapshot.FINAL ) != 0;
+    }
+
+    public boolean isStatic()
+    {
+        return ( getFlags() & ApiSnapshot.STATIC ) != 0;
+    }
+
+    public boolean isDeprecated()
+    {
+        return ( getFlags() & ApiSnapshot.DEPRECATED ) != 0;
+    }
+
+    public Object getConstantValue()
+    {
+        return buffer.getConstant( buffer.getInt( entry + ApiSnapshot.MEMBER_DETAIL ) );
+    }
+
+    public Scope getDeclaredScope()
+    {
+        return buffer.getScope( entry + ApiSnapshot.MEMBER_SCOPES );
+    }
+
+    public Scope getEffectiveScope()
+    {
+        return buffer.getScope( entry + ApiSnapshot.MEMBER_SCOPES + 1 );
+    }
+
+    public Set<String> getAnnotations()
+    {
+        return buffer.getStringSet( buffer.getInt( entry + ApiSnapshot.MEMBER_ANNOTATIONS ) );
+    }
+
+    private int getFlags()
+    {
+        return buffer.getInt( entry + ApiSnapshot.MEMBER_FLAGS );
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
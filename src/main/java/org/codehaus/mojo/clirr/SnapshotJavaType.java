@@ -0,0 +1,243 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.Set;
+
+import net.sf.clirr.core.spi.Field;
+import net.sf.clirr.core.spi.JavaType;
+import net.sf.clirr.core.spi.Method;
+import net.sf.clirr.core.spi.Scope;
+
+/**
+ * A type of an API snapshot, decoded from its record when accessed. Types referenced by
+ * name only, like parameter types outside of the snapshot, have no record, and so no
+ * members and no hierarchy.
+ *
+ * @see ApiSnapshot
+ */
+public class SnapshotJavaType
+    implements JavaType
+{
+    private static final JavaType[] NO_TYPES = new JavaType[0];
+
+    private final SnapshotTypeRepository repository;
+
+    private final SnapshotBuffer buffer;
+
+    private final String name;
+
+    private final int record;
+
+    private final int flags;
+
+    private volatile Method[] methods;
+
+    private volatile Field[] fields;
+
+    /**
+     * @param record The offset of the record of this type, or -1 for a type referenced by name only.
+     * @param flags The flags of a type referenced by name only.
+     */
+    SnapshotJavaType( SnapshotTypeRepository repository, String name, int record, int flags )
+    {
+        this.repository = repository;
+        this.buffer = repository.getBuffer();
+        this.name = name;
+        this.record = record;
+        this.flags = record < 0 ? flags : buffer.getInt( record + ApiSnapshot.TYPE_FLAGS );
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public JavaType getContainingClass()
+    {
+        if ( record < 0 )
+        {
+            return null;
+        }
+        String containingClass = buffer.getStringAt( record + ApiSnapshot.TYPE_CONTAINING_CLASS );
+        return containingClass == null ? null : repository.getType( containingClass );
+    }
+
+    public JavaType[] getSuperClasses()
+    {
+        return getTypes( ApiSnapshot.TYPE_SUPERCLASSES );
+    }
+
+    public JavaType[] getAllInterfaces()
+    {
+        return getTypes( ApiSnapshot.TYPE_INTERFACES );
+    }
+
+    public JavaType[] getInnerClasses()
+    {
+        return getTypes( ApiSnapshot.TYPE_INNER_CLASSES );
+    }
+
+    public Method[] getMethods()
+    {
+        Method[] result = methods;
+        if ( result == null )
+        {
+            if ( record < 0 )
+            {
+                result = new Method[0];
+            }
+            else
+            {
+                int table = buffer.getInt( record + ApiSnapshot.TYPE_METHODS );
+                result = new Method[buffer.getInt( table )];
+                for ( int i = 0; i < result.length; i++ )
+                {
+                    result[i] = new SnapshotMethod( repository, table + 4 + i * ApiSnapshot.MEMBER_ENTRY_SIZE );
+                }
+            }
+            methods = result;
+        }
+        return (Method[]) result.clone();
+    }
+
+    public Field[] getFields()
+    {
+        Field[] result = fields;
+        if ( result == null )
+        {
+            if ( record < 0 )
+            {
+                result = new Field[0];
+            }
+            else
+            {
+                int table = buffer.getInt( record + ApiSnapshot.TYPE_FIELDS );
+                result = new Field[buffer.getInt( table )];
+                for ( int i = 0; i < result.length; i++ )
+                {
+                    result[i] = new SnapshotField( repository, table + 4 + i * ApiSnapshot.MEMBER_ENTRY_SIZE );
+                }
+            }
+            fields = result;
+        }
+        return (Field[]) result.clone();
+    }
+
+    public boolean isArray()
+    {
+        return ( flags & ApiSnapshot.ARRAY ) != 0;
+    }
+
+    public boolean isPrimitive()
+    {
+        return ( flags & ApiSnapshot.PRIMITIVE ) != 0;
+    }
+
+    public boolean isFinal()
+    {
+        return ( flags & ApiSnapshot.FINAL ) != 0;
+    }
+
+    public boolean isAbstract()
+    {
+        return ( flags & ApiSnapshot.ABSTRACT ) != 0;
+    }
+
+    public boolean isInterface()
+    {
+        return ( flags & ApiSnapshot.INTERFACE ) != 0;
+    }
+
+    public Scope getDeclaredScope()
+    {
+        return record < 0 ? Scope.PUBLIC : buffer.getScope( record + ApiSnapshot.TYPE_SCOPES );
+    }
+
+    public Scope getEffectiveScope()
+    {
+        return record < 0 ? Scope.PUBLIC : buffer.getScope( record + ApiSnapshot.TYPE_SCOPES + 1 );
+    }
+
+    /**
+     * Whether this type belongs to the snapshotted artifact, rather than being one of
+     * its supertypes or referenced by name only.
+     */
+    public boolean isApiType()
+    {
+        return ( flags & ApiSnapshot.API ) != 0;
+    }
+
+    public Set<String> getAnnotations()
+    {
+        if ( record < 0 )
+        {
+            return Collections.emptySet();
+        }
+        return buffer.getStringSet( buffer.getInt( record + ApiSnapshot.TYPE_ANNOTATIONS ) );
+    }
+
+    /**
+     * Returns the method with the given name (<code>&lt;init&gt;</code> for constructors)
+     * and parameter type names, or null.
+     */
+    public SnapshotMethod getMethod( String methodName, String[] parameterTypeNames )
+    {
+        Method[] all = getMethods();
+        for ( int i = 0; i < all.length; i++ )
+        {
+            SnapshotMethod method = (SnapshotMethod) all[i];
+            if ( method.getName().equals( methodName ) && method.hasParameterTypes( parameterTypeNames ) )
+            {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the field with the given name, or null.
+     */
+    public SnapshotField getField( String fieldName )
+    {
+        Field[] all = getFields();
+        for ( int i = 0; i < all.length; i++ )
+        {
+            if ( all[i].getName().equals( fieldName ) )
+            {
+                return (SnapshotField) all[i];
+            }
+        }
+        return null;
+    }
+
+    private JavaType[] getTypes( int listField )
+    {
+        if ( record < 0 )
+        {
+            return NO_TYPES;
+        }
+        return repository.getTypes( buffer.getStrings( buffer.getInt( record + listField ) ) );
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
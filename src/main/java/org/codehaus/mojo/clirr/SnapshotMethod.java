@@ -0,0 +1,112 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Set;
+
+import net.sf.clirr.core.spi.JavaType;
+import net.sf.clirr.core.spi.Method;
+import net.sf.clirr.core.spi.Scope;
+
+/**
+ * A method of an API snapshot, decoded from its entry in the method table on each access.
+ *
+ * @see ApiSnapshot
+ */
+public class SnapshotMethod
+    implements Method
+{
+    private final SnapshotTypeRepository repository;
+
+    private final SnapshotBuffer buffer;
+
+    private final int entry;
+
+    SnapshotMethod( SnapshotTypeRepository repository, int entry )
+    {
+        this.repository = repository;
+        this.buffer = repository.getBuffer();
+        this.entry = entry;
+    }
+
+    public String getName()
+    {
+        return buffer.getStringAt( entry + ApiSnapshot.MEMBER_NAME );
+    }
+
+    public JavaType getReturnType()
+    {
+        String returnType = buffer.getStringAt( entry + ApiSnapshot.MEMBER_TYPE );
+        return returnType == null ? null : repository.getType( returnType );
+    }
+
+    public JavaType[] getArgumentTypes()
+    {
+        return repository.getTypes( buffer.getStrings( buffer.getInt( entry + ApiSnapshot.MEMBER_DETAIL ) ) );
+    }
+
+    public boolean isFinal()
+    {
+        return ( getFlags() & ApiSnapshot.FINAL ) != 0;
+    }
+
+    public boolean isStatic()
+    {
+        return ( getFlags() & ApiSnapshot.STATIC ) != 0;
+    }
+
+    public boolean isAbstract()
+    {
+        return ( getFlags() & ApiSnapshot.ABSTRACT ) != 0;
+    }
+
+    public boolean isDeprecated()
+    {
+        return ( getFlags() & ApiSnapshot.DEPRECATED ) != 0;
+    }
+
+    public Scope getDeclaredScope()
+    {
+        return buffer.getScope( entry + ApiSnapshot.MEMBER_SCOPES );
+    }
+
+    public Scope getEffectiveScope()
+    {
+        return buffer.getScope( entry + ApiSnapshot.MEMBER_SCOPES + 1 );
+    }
+
+    public Set<String> getAnnotations()
+    {
+        return buffer.getStringSet( buffer.getInt( entry + ApiSnapshot.MEMBER_ANNOTATIONS ) );
+    }
+
+    boolean hasParameterTypes( String[] parameterTypeNames )
+    {
+        return buffer.stringsEqual( buffer.getInt( entry + ApiSnapshot.MEMBER_DETAIL ), parameterTypeNames );
+    }
+
+    private int getFlags()
+    {
+        return buffer.getInt( entry + ApiSnapshot.MEMBER_FLAGS );
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName();
+    }
+}
@@ -0,0 +1,195 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.clirr.core.spi.JavaType;
+
+/**
+ * The classes of a previous version, as read from an API snapshot. Annotations are
+ * answered from the snapshot, so no class loader over the previous version and its
+ * dependencies is needed. Types are decoded from the mapped snapshot when first looked up.
+ *
+ * @see ApiSnapshot
+ */
+public class SnapshotTypeRepository
+    extends JavaTypeRepository
+{
+    private static final Set<String> PRIMITIVES = new HashSet<String>( Arrays.asList( new String[]{ "void",
+        "boolean", "byte", "char", "short", "int", "long", "float", "double" } ) );
+
+    private final ConcurrentMap<String, SnapshotJavaType> types = new ConcurrentHashMap<String, SnapshotJavaType>();
+
+    private final SnapshotBuffer buffer;
+
+    private final ClirrClassFilter classFilter;
+
+    private JavaType[] apiTypes;
+
+    /**
+     * @param classFilter Selects the API types to compare, may be null.
+     */
+    SnapshotTypeRepository( SnapshotBuffer buffer, ClirrClassFilter classFilter )
+    {
+        super( null, null );
+        this.buffer = buffer;
+        this.classFilter = classFilter;
+    }
+
+    SnapshotBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    @Override
+    public synchronized JavaType[] getRawJavaTypes()
+    {
+        if ( apiTypes == null )
+        {
+            List<JavaType> selected = new ArrayList<JavaType>();
+            for ( int i = 0; i < buffer.getTypeCount(); i++ )
+            {
+                int record = buffer.getTypeRecord( i );
+                if ( ( buffer.getInt( record + ApiSnapshot.TYPE_FLAGS ) & ApiSnapshot.API ) == 0 )
+                {
+                    continue;
+                }
+                String name = buffer.getTypeName( i );
+                if ( classFilter == null || classFilter.isSelected( name ) )
+                {
+                    selected.add( getType( name ) );
+                }
+            }
+            apiTypes = selected.toArray( new JavaType[selected.size()] );
+        }
+        return apiTypes;
+    }
+
+    @Override
+    public JavaType getClirrType( String className )
+    {
+        return getApiType( className );
+    }
+
+    /**
+     * Returns the type of the given name, creating a type without members for names not
+     * in the snapshot.
+     */
+    public SnapshotJavaType getType( String name )
+    {
+        SnapshotJavaType type = types.get( name );
+        if ( type == null )
+        {
+            int flags = 0;
+            if ( PRIMITIVES.contains( name ) )
+            {
+                flags |= ApiSnapshot.PRIMITIVE;
+            }
+            if ( name.endsWith( "[]" ) )
+            {
+                flags |= ApiSnapshot.ARRAY;
+            }
+            type = new SnapshotJavaType( this, name, buffer.findTypeRecord( name ), flags );
+            SnapshotJavaType existing = types.putIfAbsent( name, type );
+            if ( existing != null )
+            {
+                type = existing;
+            }
+        }
+        return type;
+    }
+
+    JavaType[] getTypes( String[] names )
+    {
+        JavaType[] result = new JavaType[names.length];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            result[i] = getType( names[i] );
+        }
+        return result;
+    }
+
+    @Override
+    public Class<?> get( String className )
+    {
+        throw new NoSuchElementException( "Class '" + className + "' is not loaded from an API snapshot." );
+    }
+
+    @Override
+    public Set<String> getClassAnnotations( String className )
+    {
+        return getApiType( className ).getAnnotations();
+    }
+
+    @Override
+    public Set<String> getMethodAnnotations( String className, String clirrMethodDefinition )
+    {
+        if ( clirrMethodDefinition == null )
+        {
+            throw new NoSuchElementException( "No method named <null> in '" + className + "' could be found." );
+        }
+        String methodName = getMethodName( clirrMethodDefinition );
+        if ( methodName.equals( className.substring( Math.max( className.lastIndexOf( '.' ),
+                                                               className.lastIndexOf( '$' ) ) + 1 ) ) )
+        {
+            methodName = "<init>";
+        }
+        return getMethodAnnotations( className, methodName, getParameterTypeNames( clirrMethodDefinition ) );
+    }
+
+    @Override
+    public Set<String> getMethodAnnotations( String className, String methodName, String[] parameterTypeNames )
+    {
+        SnapshotMethod method = getApiType( className ).getMethod( methodName, parameterTypeNames );
+        if ( method == null )
+        {
+            throw new NoSuchElementException( "No method named '" + methodName + "' in '" + className
+                + "' could be found." );
+        }
+        return method.getAnnotations();
+    }
+
+    @Override
+    public Set<String> getFieldAnnotations( String className, String fieldName )
+    {
+        SnapshotField field = getApiType( className ).getField( fieldName );
+        if ( field == null )
+        {
+            throw new NoSuchElementException( "No field named '" + fieldName + "' in '" + className
+                + "' could be found." );
+        }
+        return field.getAnnotations();
+    }
+
+    private SnapshotJavaType getApiType( String className )
+    {
+        SnapshotJavaType type = getType( className );
+        if ( !type.isApiType() )
+        {
+            throw new NoSuchElementException( "No class named '" + className + "' could be found." );
+        }
+        return type;
+    }
+}
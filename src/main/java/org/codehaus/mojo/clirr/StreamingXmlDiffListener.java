@@ -0,0 +1,151 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.DiffListener;
+import net.sf.clirr.core.MessageTranslator;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Writes the differences to an XML file as they are reported, in the format of Clirr's
+ * <code>XmlDiffListener</code>. The output is buffered, and compressed with gzip if the file
+ * name ends with <code>.gz</code>. Nothing is kept in memory, however many differences there are.
+ */
+public class StreamingXmlDiffListener
+    implements DiffListener
+{
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final String DIFFREPORT = "diffreport";
+
+    private static final String DIFFERENCE = "difference";
+
+    private final File file;
+
+    private final OutputStream out;
+
+    private final XMLStreamWriter writer;
+
+    private final MessageTranslator translator = new MessageTranslator();
+
+    public StreamingXmlDiffListener( File file )
+        throws IOException
+    {
+        this.file = file;
+        OutputStream stream = new FileOutputStream( file );
+        try
+        {
+            if ( file.getName().endsWith( ".gz" ) )
+            {
+                stream = new GZIPOutputStream( stream, BUFFER_SIZE );
+            }
+            this.out = new BufferedOutputStream( stream, BUFFER_SIZE );
+            this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter( out, "UTF-8" );
+        }
+        catch ( XMLStreamException e )
+        {
+            IOUtil.close( stream );
+            throw new IOException( "Error creating XML writer: " + e.getMessage(), e );
+        }
+    }
+
+    public void start()
+    {
+        try
+        {
+            writer.writeStartDocument( "UTF-8", "1.0" );
+            writer.writeCharacters( "\n" );
+            writer.writeStartElement( DIFFREPORT );
+            writer.writeCharacters( "\n" );
+        }
+        catch ( XMLStreamException e )
+        {
+            throw failure( e );
+        }
+    }
+
+    public void reportDiff( ApiDifference difference )
+    {
+        try
+        {
+            writer.writeCharacters( "  " );
+            writer.writeStartElement( DIFFERENCE );
+            writer.writeAttribute( "binseverity", String.valueOf( difference.getBinaryCompatibilitySeverity() ) );
+            writer.writeAttribute( "srcseverity", String.valueOf( difference.getSourceCompatibilitySeverity() ) );
+            writer.writeAttribute( "class", difference.getAffectedClass() );
+            if ( difference.getAffectedMethod() != null )
+            {
+                writer.writeAttribute( "method", difference.getAffectedMethod() );
+            }
+            if ( difference.getAffectedField() != null )
+            {
+                writer.writeAttribute( "field", difference.getAffectedField() );
+            }
+            writer.writeCharacters( difference.getReport( translator ) );
+            writer.writeEndElement();
+            writer.writeCharacters( "\n" );
+        }
+        catch ( XMLStreamException e )
+        {
+            throw failure( e );
+        }
+    }
+
+    public void stop()
+    {
+        try
+        {
+            writer.writeEndElement();
+            writer.writeCharacters( "\n" );
+            writer.writeEndDocument();
+            writer.close();
+            // closing the stream finishes the gzip trailer
+            out.close();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw failure( e );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Error writing '" + file + "': " + e.getMessage(), e );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    private IllegalStateException failure( XMLStreamException e )
+    {
+        IOUtil.close( out );
+        return new IllegalStateException( "Error writing '" + file + "': " + e.getMessage(), e );
+    }
+}
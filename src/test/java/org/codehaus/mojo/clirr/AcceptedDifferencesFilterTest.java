@@ -0,0 +1,103 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Message;
+import net.sf.clirr.core.Severity;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AcceptedDifferencesFilterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void excludesTheDifferencesWritten()
+        throws Exception
+    {
+        ApiDifference removedMethod = difference( 7002, "org.example.Api", "public void flush()", null );
+        ApiDifference removedField = difference( 6001, "org.example.Api", null, "LIMIT" );
+        ApiDifference removedClass = difference( 8001, "org.example.Gone", null, null );
+        File file = new File( folder.getRoot(), "accepted/clirr-accepted.txt" );
+        AcceptedDifferencesFilter.write( file, Arrays.asList( removedField, removedClass, removedMethod ) );
+
+        AcceptedDifferencesFilter filter = AcceptedDifferencesFilter.read( file );
+
+        assertEquals( 3, filter.size() );
+        assertFalse( filter.shouldInclude( removedMethod ) );
+        assertFalse( filter.shouldInclude( removedField ) );
+        assertFalse( filter.shouldInclude( removedClass ) );
+        // the severity is not part of what was accepted
+        assertFalse( filter.shouldInclude( new ApiDifference( new Message( 7002 ), Severity.INFO, Severity.INFO,
+                                                              "org.example.Api", "public void flush()", null,
+                                                              new String[0] ) ) );
+        assertTrue( filter.shouldInclude( difference( 7002, "org.example.Api", "public void flush(int)", null ) ) );
+        assertTrue( filter.shouldInclude( difference( 7009, "org.example.Api", "public void flush()", null ) ) );
+        assertTrue( filter.shouldInclude( difference( 8001, "org.example.Api", null, null ) ) );
+    }
+
+    @Test
+    public void writesSortedLinesForReviewers()
+        throws Exception
+    {
+        File file = new File( folder.getRoot(), "clirr-accepted.txt" );
+        ApiDifference b = difference( 8001, "org.example.B", null, null );
+        ApiDifference a = difference( 7002, "org.example.A", "public void flush()", null );
+        AcceptedDifferencesFilter.write( file, Arrays.asList( b, a ) );
+
+        assertTrue( FileUtils.fileRead( file, "UTF-8" ).startsWith( "# " ) );
+        // without the comment
+        List lines = FileUtils.loadFile( file );
+        assertEquals( 2, lines.size() );
+        assertEquals( DifferenceFingerprint.of( a ) + " 7002 org.example.A public void flush()", lines.get( 0 ) );
+        assertEquals( DifferenceFingerprint.of( b ) + " 8001 org.example.B", lines.get( 1 ) );
+    }
+
+    @Test
+    public void readsOnlyTheFirstWordOfEachLine()
+        throws Exception
+    {
+        ApiDifference removed = difference( 8001, "org.example.Gone", null, null );
+        File file = folder.newFile( "clirr-accepted.txt" );
+        FileUtils.fileWrite( file.getPath(), "UTF-8", "# comment\n\n  " + DifferenceFingerprint.of( removed )
+            + " edited by hand\nnot-a-fingerprint\n" );
+
+        AcceptedDifferencesFilter filter = AcceptedDifferencesFilter.read( file );
+
+        assertEquals( 2, filter.size() );
+        assertFalse( filter.shouldInclude( removed ) );
+    }
+
+    private static ApiDifference difference( int code, String className, String method, String field )
+    {
+        return new ApiDifference( new Message( code ), Severity.ERROR, Severity.ERROR, className, method, field,
+                                  new String[0] );
+    }
+}
@@ -0,0 +1,67 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import net.sf.clirr.core.spi.JavaType;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ApiHistoryStoreTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storesVersionsOfOneCharacter()
+        throws Exception
+    {
+        ApiHistoryStore store = new ApiHistoryStore( folder.newFolder( "history" ) );
+        JavaType[] types = new JavaType[0];
+        store.store( "org.example", "api", "1", types, new JavaTypeRepository( types, getClass().getClassLoader() ) );
+
+        assertTrue( store.contains( "org.example", "api", "1" ) );
+        assertNotNull( store.read( "org.example", "api", "1", null ) );
+    }
+
+    @Test
+    public void copiesSnapshotsOfVersionsOfOneCharacter()
+        throws Exception
+    {
+        File snapshot = folder.newFile( "api-2-api-snapshot.clirr" );
+        FileUtils.fileWrite( snapshot.getAbsolutePath(), "snapshot" );
+        File directory = folder.newFolder( "history" );
+        ApiHistoryStore store = new ApiHistoryStore( directory );
+        store.store( "org.example", "api", "2", snapshot );
+        store.store( "org.example", "api", "10", snapshot );
+
+        assertEquals( Arrays.asList( "2", "10" ), store.getVersions( "org.example", "api" ) );
+        // no temporary files are left behind
+        String[] files = new File( directory, "org.example/api" ).list();
+        Arrays.sort( files );
+        assertEquals( Arrays.asList( "10.clirr", "2.clirr" ), Arrays.asList( files ) );
+    }
+}
@@ -0,0 +1,97 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import net.sf.clirr.core.spi.JavaType;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ApiSnapshotCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keysDependOnTheJarsAndTheirDependencies()
+        throws Exception
+    {
+        File jar1 = createFile( "a.jar", "a" );
+        File jar2 = createFile( "b.jar", "b" );
+        File dependency = createFile( "c.jar", "c" );
+        String digest = ApiSnapshotCache.digest( dependency );
+
+        String key = ApiSnapshotCache.createKey( new File[]{ jar1, jar2 }, Arrays.asList( digest, "g:d:jar:1.0" ) );
+        assertEquals( key, ApiSnapshotCache.createKey( new File[]{ jar2, jar1 },
+                                                       Arrays.asList( "g:d:jar:1.0", digest ) ) );
+        assertFalse( key.equals( ApiSnapshotCache.createKey( new File[]{ jar1, jar2 },
+                                                             Collections.singletonList( digest ) ) ) );
+        assertFalse( key.equals( ApiSnapshotCache.createKey( new File[]{ jar1, jar2 },
+                                                             Collections.<String> emptyList() ) ) );
+    }
+
+    @Test
+    public void evictedEntriesAreRenamedForReadersThatMappedThem()
+        throws Exception
+    {
+        File directory = folder.newFolder( "cache" );
+        ApiSnapshotCache cache = new ApiSnapshotCache( directory, 0 );
+        JavaType[] types = new JavaType[0];
+        JavaTypeRepository annotations = new JavaTypeRepository( types, getClass().getClassLoader() );
+        String key1 = ApiSnapshotCache.createKey( new File[]{ createFile( "a.jar", "a" ) },
+                                                  Collections.<String> emptyList() );
+        String key2 = ApiSnapshotCache.createKey( new File[]{ createFile( "b.jar", "b" ) },
+                                                  Collections.<String> emptyList() );
+
+        File entry1 = cache.store( key1, types, annotations );
+        assertNotNull( cache.read( key1, null ) );
+        entry1.setLastModified( System.currentTimeMillis() - 60000 );
+        cache.store( key2, types, annotations );
+
+        assertNull( cache.read( key1, null ) );
+        assertNotNull( cache.read( key2, null ) );
+        String[] files = entry1.getParentFile().list();
+        int evicted = 0;
+        for ( int i = 0; i < files.length; i++ )
+        {
+            if ( files[i].startsWith( entry1.getName() ) && files[i].endsWith( ".evicted" ) )
+            {
+                evicted++;
+            }
+        }
+        assertEquals( 1, evicted );
+    }
+
+    private File createFile( String name, String content )
+        throws Exception
+    {
+        File file = new File( folder.getRoot(), name );
+        FileUtils.fileWrite( file.getAbsolutePath(), content );
+        return file;
+    }
+}
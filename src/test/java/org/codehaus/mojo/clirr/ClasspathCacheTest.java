@@ -0,0 +1,94 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.bcel.util.Repository;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathCacheTest
+{
+    private static final int CLASS_SIZE = 100000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsClassLoadersWithinTheSize()
+        throws Exception
+    {
+        File a = createJar( "a.jar", "a/A.class" );
+        File b = createJar( "b.jar", "b/B.class" );
+        ClasspathCache cache = new ClasspathCache( a.length() + b.length() );
+
+        ClassLoader classLoaderA = cache.getClassLoader( Collections.singletonList( a ) );
+        Repository repositoryA = cache.getRepository( classLoaderA );
+        ClassLoader classLoaderB = cache.getClassLoader( Collections.singletonList( b ) );
+
+        assertSame( classLoaderA, cache.getClassLoader( Collections.singletonList( a ) ) );
+        assertSame( repositoryA, cache.getRepository( classLoaderA ) );
+        assertSame( classLoaderB, cache.getClassLoader( Collections.singletonList( b ) ) );
+    }
+
+    @Test
+    public void evictsClassLoadersWhoseParsedClassesExceedTheSize()
+        throws Exception
+    {
+        File a = createJar( "a.jar", "a/A.class" );
+        File b = createJar( "b.jar", "b/B.class" );
+        ClasspathCache cache = new ClasspathCache( a.length() + b.length() + CLASS_SIZE / 2 );
+
+        ClassLoader classLoaderA = cache.getClassLoader( Collections.singletonList( a ) );
+        Repository repositoryA = cache.getRepository( classLoaderA );
+        repositoryA.loadClass( "a.A" );
+        assertEquals( CLASS_SIZE, ( (CachingClassRepository) repositoryA ).getParsedBytes() );
+        cache.getClassLoader( Collections.singletonList( b ) );
+
+        assertNotSame( repositoryA, cache.getRepository( classLoaderA ) );
+        assertNotSame( classLoaderA, cache.getClassLoader( Collections.singletonList( a ) ) );
+    }
+
+    private File createJar( String name, String entry )
+        throws Exception
+    {
+        File file = new File( folder.getRoot(), name );
+        JarOutputStream out = new JarOutputStream( new FileOutputStream( file ) );
+        try
+        {
+            out.putNextEntry( new ZipEntry( entry ) );
+            out.write( new byte[CLASS_SIZE] );
+            out.closeEntry();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        return file;
+    }
+}
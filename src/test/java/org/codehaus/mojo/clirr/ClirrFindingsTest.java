@@ -0,0 +1,104 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Message;
+import net.sf.clirr.core.Severity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClirrFindingsTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsStringsLongerThan64Kilobytes()
+        throws Exception
+    {
+        StringBuilder className = new StringBuilder( "org.example." );
+        while ( className.length() < 70000 )
+        {
+            className.append( "Long\u00e9" );
+        }
+        File file = new File( folder.getRoot(), "findings.dat" );
+        FindingsWriter writer = new FindingsWriter( file, "fingerprint", null, Locale.ENGLISH );
+        writer.reportDiff( difference( 7002, className.toString() ) );
+        writer.stop();
+
+        ClirrFindings findings = ClirrFindings.read( file );
+        assertEquals( "fingerprint", findings.getFingerprint() );
+        assertNull( findings.getComparisonVersion() );
+        List<ClirrFindings.Finding> errors = findings.getFindings( Severity.ERROR );
+        assertEquals( 1, errors.size() );
+        assertEquals( className.toString(), errors.get( 0 ).getClassName() );
+        assertEquals( "public void internalFlush(int)", errors.get( 0 ).getMember() );
+    }
+
+    @Test
+    public void writesWhatPassesTheFiltersOfTheCheck()
+        throws Exception
+    {
+        File file = new File( folder.getRoot(), "findings.dat" );
+        FindingsWriter writer = new FindingsWriter( file, "fingerprint", "1.0", Locale.ENGLISH );
+        writer.setRetentionLimit( 1 );
+        ClirrDiffListener listener =
+            new ClirrDiffListener( MessageCodeFilter.excluding( MessageCodeFilter.Codes.METHOD_REMOVED ) );
+        listener.setFilteredListener( writer );
+        listener.reportDiff( difference( 7002, "org.example.Removed" ) );
+        listener.reportDiff( difference( 8001, "org.example.First" ) );
+        listener.reportDiff( difference( 8001, "org.example.Second" ) );
+        writer.stop();
+
+        ClirrFindings findings = ClirrFindings.read( file );
+        assertEquals( "1.0", findings.getComparisonVersion() );
+        assertEquals( 2, findings.getSeverityCount( Severity.ERROR ) );
+        assertEquals( 1, findings.getFindings( Severity.ERROR ).size() );
+        assertEquals( "org.example.First", findings.getFindings( Severity.ERROR ).get( 0 ).getClassName() );
+        assertEquals( 2, listener.getApiDifferences().size() );
+    }
+
+    @Test
+    public void abortedFindingsAreNotWritten()
+        throws Exception
+    {
+        File file = new File( folder.getRoot(), "findings.dat" );
+        FindingsWriter writer = new FindingsWriter( file, "fingerprint", null, Locale.ENGLISH );
+        writer.reportDiff( difference( 8001, "org.example.Removed" ) );
+        writer.abort();
+
+        assertEquals( Collections.<String> emptyList(), Arrays.asList( folder.getRoot().list() ) );
+    }
+
+    private static ApiDifference difference( int code, String className )
+    {
+        return new ApiDifference( new Message( code ), Severity.ERROR, Severity.ERROR, className,
+                                  code == 7002 ? "public void internalFlush(int)" : null, null, new String[0] );
+    }
+}
@@ -0,0 +1,187 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Message;
+import net.sf.clirr.core.Severity;
+
+import org.apache.bcel.classfile.JavaClass;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Runs lookups on the filters and class repositories which the goals share between threads
+ * from many threads at once.
+ */
+public class ConcurrentLookupTest
+{
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 200;
+
+    private static final String[] CLASS_NAMES = {
+        GlobAutomaton.class.getName(),
+        MemberExclusionFilter.class.getName(),
+        MessageCodeFilter.class.getName(),
+        DifferenceFingerprint.class.getName(),
+        AcceptedDifferencesFilter.class.getName() };
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+
+    @After
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void repositoriesParseEachClassOnce()
+        throws Exception
+    {
+        ClassLoader classLoader = getClass().getClassLoader();
+        final CachingClassRepository parent = new CachingClassRepository( classLoader, null );
+        final CachingClassRepository repository = new CachingClassRepository( classLoader, parent );
+
+        List<List<JavaClass>> loaded = runConcurrently( new Callable<List<JavaClass>>()
+        {
+            public List<JavaClass> call()
+                throws Exception
+            {
+                List<JavaClass> classes = new ArrayList<JavaClass>();
+                for ( int i = 0; i < ROUNDS; i++ )
+                {
+                    String className = CLASS_NAMES[i % CLASS_NAMES.length];
+                    classes.add( i % 2 == 0 ? repository.loadClass( className )
+                                    : repository.loadClass( className.replace( '.', '/' ) ) );
+                }
+                return classes;
+            }
+        } );
+
+        assertEquals( CLASS_NAMES.length, parent.size() );
+        assertEquals( 0, repository.size() );
+        for ( List<JavaClass> classes : loaded )
+        {
+            for ( int i = 0; i < classes.size(); i++ )
+            {
+                String className = CLASS_NAMES[i % CLASS_NAMES.length];
+                assertSame( parent.findClass( className ), classes.get( i ) );
+                assertSame( classes.get( i ), repository.findClass( className ) );
+            }
+        }
+    }
+
+    @Test
+    public void filtersGiveTheSameAnswersOnEveryThread()
+        throws Exception
+    {
+        final List<ApiDifference> differences = Arrays.asList(
+            difference( 7002, "org.example.CacheImpl", "public void internalFlush(int)", null ),
+            difference( 7002, "org.example.Cache", "public void flush(int)", null ),
+            difference( 6001, "org.example.Constants", null, "SECRET" ),
+            difference( 6001, "org.example.Constants", null, "PUBLIC" ),
+            difference( 8001, "org.example.Removed", null, null ),
+            difference( 7012, "org.example.Service", "public abstract void start()", null ) );
+        final List<ApiDifferenceFilter> filters = Arrays.asList(
+            new MemberExclusionFilter( new String[]{ "*Impl#internal*(..)", "org.example.Constants#SECRET" } ),
+            MessageCodeFilter.excluding( MessageCodeFilter.Codes.CLASS_REMOVED ),
+            new AcceptedDifferencesFilter( new HashSet<String>( Arrays.asList(
+                DifferenceFingerprint.of( differences.get( 5 ) ) ) ) ) );
+        final List<Boolean> expected = filter( filters, differences );
+        assertEquals( Arrays.asList( false, true, false, true, false, false ), expected );
+
+        List<List<Boolean>> results = runConcurrently( new Callable<List<Boolean>>()
+        {
+            public List<Boolean> call()
+            {
+                List<Boolean> included = new ArrayList<Boolean>();
+                for ( int i = 0; i < ROUNDS; i++ )
+                {
+                    included = filter( filters, differences );
+                    assertEquals( expected, included );
+                }
+                return included;
+            }
+        } );
+
+        for ( List<Boolean> included : results )
+        {
+            assertEquals( expected, included );
+        }
+    }
+
+    private <T> List<T> runConcurrently( final Callable<T> task )
+        throws Exception
+    {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for ( int i = 0; i < THREADS; i++ )
+        {
+            futures.add( executor.submit( new Callable<T>()
+            {
+                public T call()
+                    throws Exception
+                {
+                    start.await();
+                    return task.call();
+                }
+            } ) );
+        }
+        start.countDown();
+        List<T> results = new ArrayList<T>();
+        for ( Future<T> future : futures )
+        {
+            results.add( future.get() );
+        }
+        return results;
+    }
+
+    private static List<Boolean> filter( List<ApiDifferenceFilter> filters, List<ApiDifference> differences )
+    {
+        List<Boolean> included = new ArrayList<Boolean>();
+        for ( ApiDifference difference : differences )
+        {
+            boolean include = true;
+            for ( ApiDifferenceFilter filter : filters )
+            {
+                include &= filter.shouldInclude( difference );
+            }
+            included.add( include );
+        }
+        return included;
+    }
+
+    private static ApiDifference difference( int code, String className, String method, String field )
+    {
+        return new ApiDifference( new Message( code ), Severity.ERROR, Severity.ERROR, className, method, field,
+                                  new String[0] );
+    }
+}
@@ -0,0 +1,72 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Message;
+import net.sf.clirr.core.Severity;
+
+import org.junit.Test;
+
+public class DifferenceFingerprintTest
+{
+    @Test
+    public void dependsOnTheMessageCodeClassAndMemberOnly()
+    {
+        String fingerprint = DifferenceFingerprint.of( difference( 7002, Severity.ERROR, "public void flush()" ) );
+
+        assertTrue( fingerprint, fingerprint.matches( "[0-9a-f]{40}" ) );
+        assertEquals( fingerprint, DifferenceFingerprint.of( difference( 7002, Severity.INFO,
+                                                                         "public void flush()" ) ) );
+        assertEquals( fingerprint, DifferenceFingerprint.of( 7002, "org.example.Api", "public void flush()" ) );
+        assertFalse( fingerprint.equals( DifferenceFingerprint.of( difference( 7009, Severity.ERROR,
+                                                                               "public void flush()" ) ) ) );
+        assertFalse( fingerprint.equals( DifferenceFingerprint.of( difference( 7002, Severity.ERROR,
+                                                                               "public void flush(int)" ) ) ) );
+        assertFalse( fingerprint.equals( DifferenceFingerprint.of( 7002, "org.example.Other",
+                                                                   "public void flush()" ) ) );
+    }
+
+    @Test
+    public void classDifferencesHaveNoMember()
+    {
+        ApiDifference difference = difference( 8001, Severity.ERROR, null );
+
+        assertEquals( null, DifferenceFingerprint.getMember( difference ) );
+        assertEquals( DifferenceFingerprint.of( 8001, "org.example.Api", null ),
+                      DifferenceFingerprint.of( difference ) );
+    }
+
+    @Test
+    public void fieldsAreMembers()
+    {
+        ApiDifference difference = new ApiDifference( new Message( 6001 ), Severity.ERROR, Severity.ERROR,
+                                                      "org.example.Api", null, "LIMIT", new String[0] );
+
+        assertEquals( "LIMIT", DifferenceFingerprint.getMember( difference ) );
+    }
+
+    private static ApiDifference difference( int code, Severity severity, String method )
+    {
+        return new ApiDifference( new Message( code ), severity, severity, "org.example.Api", method, null,
+                                  new String[0] );
+    }
+}
@@ -0,0 +1,63 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class GlobAutomatonTest
+{
+    @Test
+    public void matchesStarsAndQuestionMarks()
+    {
+        GlobAutomaton automaton = new GlobAutomaton( Arrays.asList( "a*c", "x?z" ) );
+
+        assertTrue( automaton.matches( "ac", 0 ) );
+        assertTrue( automaton.matches( "abbbc", 0 ) );
+        assertTrue( automaton.matches( "xyz", 0 ) );
+        assertFalse( automaton.matches( "xz", 0 ) );
+        assertFalse( automaton.matches( "xyyz", 0 ) );
+        assertFalse( automaton.matches( "abcd", 0 ) );
+        assertFalse( automaton.matches( "", 0 ) );
+    }
+
+    @Test
+    public void matchesFromAnIndex()
+    {
+        GlobAutomaton automaton = new GlobAutomaton( Arrays.asList( "Impl#*" ) );
+
+        assertTrue( automaton.matches( "org.example.FooImpl#flush()", "org.example.Foo".length() ) );
+        assertFalse( automaton.matches( "org.example.FooImpl#flush()", 0 ) );
+    }
+
+    @Test
+    public void givesTheSameAnswersOnceTheStatesAreBuilt()
+    {
+        GlobAutomaton automaton = new GlobAutomaton( Arrays.asList( "*a*b", "*ab*" ) );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            assertTrue( automaton.matches( "xaxb", 0 ) );
+            assertTrue( automaton.matches( "abx", 0 ) );
+            assertFalse( automaton.matches( "bxa", 0 ) );
+        }
+    }
+}
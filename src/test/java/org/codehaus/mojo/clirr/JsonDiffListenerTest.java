@@ -0,0 +1,65 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Message;
+import net.sf.clirr.core.Severity;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JsonDiffListenerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesOneEscapedObjectPerDifference()
+        throws Exception
+    {
+        File file = new File( folder.getRoot(), "clirr.json" );
+        ApiDifference method = new ApiDifference( new Message( 7002 ), Severity.ERROR, Severity.ERROR,
+                                                  "org.example.Api", "public void \"quoted\"(java.lang.String)", null,
+                                                  new String[0] );
+        ApiDifference odd = new ApiDifference( new Message( 8001 ), Severity.ERROR, Severity.ERROR,
+                                               "back\\slash\nnew\tline\u0001", null, null, new String[0] );
+        JsonDiffListener listener = new JsonDiffListener( file );
+        listener.start();
+        listener.reportDiff( method );
+        listener.reportDiff( odd );
+        listener.stop();
+
+        List lines = FileUtils.loadFile( file );
+        assertEquals( 2, lines.size() );
+        String first = (String) lines.get( 0 );
+        assertTrue( first, first.startsWith( "{\"class\":\"org.example.Api\","
+            + "\"member\":\"public void \\\"quoted\\\"(java.lang.String)\",\"messageId\":7002," ) );
+        assertTrue( first, first.endsWith( ",\"fingerprint\":\"" + DifferenceFingerprint.of( method ) + "\"}" ) );
+        String second = (String) lines.get( 1 );
+        assertTrue( second, second.startsWith( "{\"class\":\"back\\\\slash\\nnew\\tline\\u0001\","
+            + "\"member\":null,\"messageId\":8001," ) );
+    }
+}
@@ -0,0 +1,99 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LazyDependencyClassLoaderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> resolved = new ArrayList<String>();
+
+    @Test
+    public void missesOnlyResolveDependenciesOfTheirPackage()
+        throws Exception
+    {
+        Artifact example = createArtifact( "org.example", "example" );
+        Artifact other = createArtifact( "com.other", "other" );
+        LazyDependencyClassLoader classLoader =
+            new LazyDependencyClassLoader( Arrays.asList( other, example ), createResolver(), null,
+                                           Collections.emptyList(), new SystemStreamLog() );
+
+        assertNotNull( classLoader.findResource( "org/example/Api.class" ) );
+        assertNull( classLoader.findResource( "org/example/Missing.class" ) );
+        assertNull( classLoader.findResource( "org/unknown/Missing.class" ) );
+        assertNull( classLoader.findResource( "org/unknown/Missing.class" ) );
+
+        assertEquals( Collections.singletonList( "example" ), resolved );
+        assertEquals( 1, classLoader.getPendingCount() );
+        assertEquals( Collections.singletonList( example ), classLoader.getUsedArtifacts() );
+    }
+
+    private Artifact createArtifact( String groupId, String artifactId )
+    {
+        return new DefaultArtifact( groupId, artifactId, VersionRange.createFromVersion( "1.0" ), "compile",
+                                    "jar", null, new DefaultArtifactHandler( "jar" ) );
+    }
+
+    /**
+     * Creates a resolver which puts each artifact into a directory with a class named <code>Api</code>
+     * in the package of its groupId.
+     */
+    private ArtifactResolver createResolver()
+    {
+        return (ArtifactResolver) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                          new Class[]{ ArtifactResolver.class },
+                                                          new InvocationHandler()
+        {
+            public Object invoke( Object proxy, Method method, Object[] args )
+                throws Throwable
+            {
+                Artifact artifact = (Artifact) args[0];
+                File directory = folder.newFolder( artifact.getArtifactId() );
+                File api = new File( directory, artifact.getGroupId().replace( '.', '/' ) + "/Api.class" );
+                api.getParentFile().mkdirs();
+                api.createNewFile();
+                artifact.setFile( directory );
+                resolved.add( artifact.getArtifactId() );
+                return null;
+            }
+        } );
+    }
+}
@@ -0,0 +1,111 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.clirr.core.ApiDifference;
+import net.sf.clirr.core.Message;
+import net.sf.clirr.core.Severity;
+
+import org.junit.Test;
+
+public class MemberExclusionFilterTest
+{
+    @Test
+    public void excludesMethodsOfMatchingClasses()
+    {
+        MemberExclusionFilter filter = new MemberExclusionFilter( new String[]{ "*Impl.internal*(..)" } );
+
+        assertFalse( filter.shouldInclude( method( "org.example.FooImpl", "public void internalFlush()" ) ) );
+        assertFalse( filter.shouldInclude( method( "org.example.FooImpl",
+                                                   "public void internalPut(java.lang.String, int)" ) ) );
+        assertTrue( filter.shouldInclude( method( "org.example.FooImpl", "public void flush()" ) ) );
+        assertTrue( filter.shouldInclude( method( "org.example.Foo", "public void internalFlush()" ) ) );
+        assertTrue( filter.shouldInclude( field( "org.example.FooImpl", "internalCount" ) ) );
+    }
+
+    @Test
+    public void matchesTheParametersGiven()
+    {
+        MemberExclusionFilter filter =
+            new MemberExclusionFilter( new String[]{ "org.example.Foo.put(java.lang.String, ?nt)" } );
+
+        assertFalse( filter.shouldInclude( method( "org.example.Foo", "public void put(java.lang.String, int)" ) ) );
+        assertTrue( filter.shouldInclude( method( "org.example.Foo", "public void put(java.lang.String)" ) ) );
+        assertTrue( filter.shouldInclude( method( "org.example.Foo", "public void put(int, java.lang.String)" ) ) );
+    }
+
+    @Test
+    public void excludesFieldsAndMethodsOfAName()
+    {
+        MemberExclusionFilter filter = new MemberExclusionFilter( new String[]{ "org.example.Foo.count" } );
+
+        assertFalse( filter.shouldInclude( field( "org.example.Foo", "count" ) ) );
+        assertFalse( filter.shouldInclude( method( "org.example.Foo", "public int count(int)" ) ) );
+        assertTrue( filter.shouldInclude( field( "org.example.Foo", "counter" ) ) );
+        assertTrue( filter.shouldInclude( field( "org.example.Bar", "count" ) ) );
+    }
+
+    @Test
+    public void separatesTheMemberWithAHash()
+    {
+        MemberExclusionFilter filter = new MemberExclusionFilter( new String[]{ "org.example.*#get*" } );
+
+        assertFalse( filter.shouldInclude( method( "org.example.inner.Foo", "public int getCount()" ) ) );
+        assertFalse( filter.shouldInclude( field( "org.example.Foo", "getter" ) ) );
+        assertTrue( filter.shouldInclude( method( "org.other.Foo", "public int getCount()" ) ) );
+    }
+
+    @Test
+    public void includesDifferencesOfClasses()
+    {
+        MemberExclusionFilter filter = new MemberExclusionFilter( new String[]{ "*#*" } );
+
+        assertTrue( filter.shouldInclude( difference( "org.example.Foo", null, null ) ) );
+        assertFalse( filter.shouldInclude( field( "org.example.Foo", "count" ) ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsPatternsWithoutAMember()
+    {
+        new MemberExclusionFilter( new String[]{ "org.example.Foo#" } );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsUnclosedParameters()
+    {
+        new MemberExclusionFilter( new String[]{ "org.example.Foo.put(int" } );
+    }
+
+    private static ApiDifference method( String className, String method )
+    {
+        return difference( className, method, null );
+    }
+
+    private static ApiDifference field( String className, String field )
+    {
+        return difference( className, null, field );
+    }
+
+    private static ApiDifference difference( String className, String method, String field )
+    {
+        return new ApiDifference( new Message( 7002 ), Severity.ERROR, Severity.ERROR, className, method, field,
+                                  new String[0] );
+    }
+}
@@ -0,0 +1,133 @@
+package org.codehaus.mojo.clirr;
+
+/*
+ * Copyright 2006 The Codehaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+/**
+ * Walks the POMs in <code>src/test/resources/pom-dependency-walker</code>, which are named
+ * <code>artifactId-version.pom</code> and all have the groupId <code>org.example</code>.
+ */
+public class PomDependencyWalkerTest
+{
+    private final List<String> resolvedPoms = new ArrayList<String>();
+
+    @Test
+    public void collectsInheritedImportedAndProfileDependencies()
+        throws Exception
+    {
+        PomDependencyWalker walker = createWalker();
+
+        List<Artifact> dependencies = walker.collectDependencies( Collections.singleton( createArtifact( "app" ) ) );
+
+        // the version of lib-a is interpolated from the parent, the version of lib-b imported
+        // from a BOM by the parent, lib-c is added by a profile active by default
+        assertEquals( Arrays.asList( "lib-a:2.0", "lib-b:3.0", "lib-c:1.0", "lib-e:1.0" ), toStrings( dependencies ) );
+    }
+
+    @Test
+    public void pomsWithoutGroupIdOrParentNeedFullProjectBuilding()
+        throws Exception
+    {
+        assertNull( createWalker().collectDependencies( Collections.singleton( createArtifact( "orphan" ) ) ) );
+    }
+
+    @Test
+    public void parsesEachPomOnce()
+        throws Exception
+    {
+        PomDependencyWalker walker = createWalker();
+        walker.collectDependencies( Collections.singleton( createArtifact( "app" ) ) );
+        int resolved = resolvedPoms.size();
+        walker.collectDependencies( Collections.singleton( createArtifact( "app" ) ) );
+
+        assertEquals( resolved, resolvedPoms.size() );
+    }
+
+    private static List<String> toStrings( List<Artifact> artifacts )
+    {
+        List<String> result = new ArrayList<String>();
+        for ( Artifact artifact : artifacts )
+        {
+            result.add( artifact.getArtifactId() + ':' + artifact.getVersion() );
+        }
+        return result;
+    }
+
+    private static Artifact createArtifact( String artifactId )
+    {
+        return new DefaultArtifact( "org.example", artifactId, VersionRange.createFromVersion( "1.0" ), null, "jar",
+                                    null, new DefaultArtifactHandler( "jar" ) );
+    }
+
+    private PomDependencyWalker createWalker()
+    {
+        ArtifactFactory factory =
+            (ArtifactFactory) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                      new Class[]{ ArtifactFactory.class }, new InvocationHandler()
+            {
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( "createProjectArtifact".equals( method.getName() ) )
+                    {
+                        return new DefaultArtifact( (String) args[0], (String) args[1],
+                                                    VersionRange.createFromVersion( (String) args[2] ), null, "pom",
+                                                    null, new DefaultArtifactHandler( "pom" ) );
+                    }
+                    // createDependencyArtifact( groupId, artifactId, versionRange, type, classifier, scope )
+                    return new DefaultArtifact( (String) args[0], (String) args[1], (VersionRange) args[2],
+                                                (String) args[5], (String) args[3], (String) args[4],
+                                                new DefaultArtifactHandler( (String) args[3] ) );
+                }
+            } );
+        ArtifactResolver resolver =
+            (ArtifactResolver) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                       new Class[]{ ArtifactResolver.class }, new InvocationHandler()
+            {
+                public Object invoke( Object proxy, Method method, Object[] args )
+                    throws Exception
+                {
+                    Artifact artifact = (Artifact) args[0];
+                    String name = artifact.getArtifactId() + '-' + artifact.getVersion() + ".pom";
+                    artifact.setFile( new File( getClass().getResource( "/pom-dependency-walker/" + name ).toURI() ) );
+                    resolvedPoms.add( name );
+                    return null;
+                }
+            } );
+        return new PomDependencyWalker( null, factory, resolver, null, Collections.emptyList(),
+                                        new SystemStreamLog() );
+    }
+}